@@ -1,32 +1,55 @@
 package org.banbridge;
 
 import cn.nukkit.Player;
+import cn.nukkit.command.Command;
+import cn.nukkit.command.CommandSender;
 import cn.nukkit.command.ConsoleCommandSender;
 import cn.nukkit.event.EventHandler;
 import cn.nukkit.event.EventPriority;
 import cn.nukkit.event.Listener;
 import cn.nukkit.event.player.PlayerCommandPreprocessEvent;
-import cn.nukkit.event.player.PlayerDeathEvent;
-import cn.nukkit.event.player.PlayerJoinEvent;
 import cn.nukkit.event.player.PlayerLoginEvent;
-import cn.nukkit.event.player.PlayerQuitEvent;
 import cn.nukkit.event.server.ServerCommandEvent;
+import cn.nukkit.plugin.Plugin;
 import cn.nukkit.plugin.PluginBase;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.banbridge.api.BackendClient;
 import org.banbridge.api.BanReportRequest;
+import org.banbridge.api.CommandAckRequest;
 import org.banbridge.api.CommandsPollResponse;
 import org.banbridge.api.PresenceRequest;
+import org.banbridge.api.MetricsBatchRequest;
 import org.banbridge.api.ServerMetricsRequest;
 import org.banbridge.bans.BanCache;
 import org.banbridge.bans.BanEntry;
-import org.banbridge.stats.BandwidthMeter;
+import org.banbridge.bans.BanPropagationTracker;
+import org.banbridge.bans.BanReadiness;
+import org.banbridge.commands.CommandBlocker;
+import org.banbridge.commands.CommandJournal;
+import org.banbridge.commands.CommandPayloads;
+import org.banbridge.log.BridgeLog;
+import org.banbridge.log.LogEvent;
+import org.banbridge.log.LogFormatter;
+import org.banbridge.log.LogLevel;
+import org.banbridge.metrics.BackendMetrics;
+import org.banbridge.metrics.JfrCollector;
+import org.banbridge.metrics.MetricsBacklog;
+import org.banbridge.metrics.MetricsBatchBuffer;
+import org.banbridge.metrics.MetricsSampler;
+import org.banbridge.metrics.WindowedHistogram;
 import org.banbridge.stats.LinuxBandwidthMeter;
-import org.banbridge.stats.OshiBandwidthMeter;
+import org.banbridge.stats.StatCounterRegistry;
 import org.banbridge.stats.StatsAccumulator;
+import org.banbridge.stats.StatsCheckpoint;
+import org.banbridge.stats.StatsListener;
+import org.banbridge.stats.StatsUploader;
+import org.banbridge.tick.MainThreadQueue;
+import org.banbridge.tick.TickBudgetExecutor;
+import org.banbridge.tick.StallWatchdog;
+import org.banbridge.tick.TickRecorder;
+import org.banbridge.web.MetricsHttpServer;
+import org.banbridge.web.OpenMetricsWriter;
 
-import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
@@ -35,11 +58,15 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
 public final class BanBridgePlugin extends PluginBase implements Listener {
 
@@ -55,6 +82,9 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
     private static final String ACCENT = "§b";
     private static final String DIM = "§8";
 
+    private static final String DEFAULT_BLOCK_RESPONSE =
+            PREFIX + ERR + "Banning is disabled. " + INFO + "Please use the " + ACCENT + "website" + INFO + ".";
+
     // ----------------------------
     // State
     // ----------------------------
@@ -62,22 +92,65 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
     private BackendClient backendClient;
     private BanCache banCache;
     private StatsAccumulator stats;
+    private StatsUploader statsUploader;
+    private StatsCheckpoint statsCheckpoint;
+    private long shutdownFlushMillis;
+    private int commandsAckBatchSize;
 
     private String serverKey;
     private Path banCachePath;
 
-    private BandwidthMeter bandwidthMeter;
+    /**
+     * Cache load + first ban sync run in the background; onLogin consults this until READY.
+     */
+    private BanReadiness banReadiness;
+    private BanReadiness.LoginPolicy loginPolicy;
+    /**
+     * Hold budget left for all logins together (startup.holdMillis); main thread only.
+     */
+    private long loginHoldRemainingMillis;
+    private volatile long startupMillis;
+    private String notReadyMessage;
+
+    private MetricsSampler metricsSampler;
+    private final BanPropagationTracker banPropagation = new BanPropagationTracker();
+    private JfrCollector jfrCollector;
+    private MetricsBacklog metricsBacklog;
+    private MetricsBatchBuffer metricsBatch;
+    private long liveMetricsMillis;
+    private long lastLiveMetricsAt; // metrics push task only
+    private int metricsBacklogBatchSize;
+    private final AtomicBoolean metricsBackfilling = new AtomicBoolean(false);
+    private MetricsHttpServer webServer;
+
+    /**
+     * Latest push window and last successful ban poll, for the scrape endpoint.
+     */
+    private volatile ServerMetricsRequest lastMetrics;
+    private volatile long lastBanSyncMillis;
+
+    /**
+     * Handoff from HttpClient callbacks to the main thread; drained once per tick.
+     */
+    private MainThreadQueue mainThreadQueue;
+    private TickBudgetExecutor tickExecutor;
+    private TickRecorder tickRecorder;
+    private StallWatchdog stallWatchdog;
 
     private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
     private final AtomicBoolean warnedMissingServerKey = new AtomicBoolean(false);
     private final AtomicBoolean commandsProcessing = new AtomicBoolean(false);
 
     /**
-     * Commands cursor: only advance after successful ACK to avoid losing commands.
+     * Commands cursor (only advanced after successful ACK) + recently executed IDs, persisted.
      */
-    private final AtomicLong commandsSinceId = new AtomicLong(0);
+    private CommandJournal commandJournal;
+    private volatile CommandBlocker commandBlocker = CommandBlocker.empty();
+
+    private BridgeLog log;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CommandPayloads commandPayloads = new CommandPayloads(objectMapper);
 
     // ----------------------------
     // Lifecycle
@@ -85,27 +158,59 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
 
     @Override
     public void onEnable() {
+        long enableStart = System.nanoTime();
+        this.banReadiness = new BanReadiness(enableStart);
         saveDefaultConfig();
 
+        this.log = new BridgeLog(
+                getLogger(),
+                BanBridgePlugin::formatLogEvent,
+                LogLevel.parse(getConfig().getString("logging.level", "INFO"), LogLevel.INFO),
+                Math.max(1, getConfig().getInt("logging.rateLimitBurst", 5)),
+                Math.max(1, getConfig().getInt("logging.rateLimitWindowSeconds", 60)) * 1000L,
+                Math.max(16, getConfig().getInt("logging.queueCapacity", 1024))
+        );
+        log.start();
+
         String baseUrl = getConfig().getString("api.baseUrl");
         this.serverKey = getConfig().getString("api.serverKey");
         String serverToken = getConfig().getString("api.serverToken");
 
         int bansPollSeconds = Math.max(3, getConfig().getInt("sync.bansPollSeconds", 10));
         int statsFlushSeconds = Math.max(10, getConfig().getInt("sync.statsFlushSeconds", 60));
+        int statsChunkMaxPlayers = Math.max(1, getConfig().getInt("sync.statsChunkMaxPlayers", 500));
+        int statsChunkMaxBytes = Math.max(1024, getConfig().getInt("sync.statsChunkMaxBytes", 256 * 1024));
+        int statsMaxInFlight = clampInt(getConfig().getInt("sync.statsMaxInFlight", 2), 1, 8);
+        int statsCheckpointSeconds = Math.max(1, getConfig().getInt("sync.statsCheckpointSeconds", 5));
+        this.shutdownFlushMillis = Math.max(0L, getConfig().getLong("sync.shutdownFlushMillis", 3000L));
         int metricsSeconds = Math.max(5, getConfig().getInt("sync.metricsSeconds", 15));
 
         int presenceSecondsCfg = getConfig().getInt("sync.presenceSeconds", 15);
         int presenceSeconds = clampInt(presenceSecondsCfg, 10, 30);
 
         int commandsPollSeconds = Math.max(2, getConfig().getInt("sync.commandsPollSeconds", 3));
+        this.commandsAckBatchSize = clampInt(getConfig().getInt("sync.commandsAckBatchSize", 25), 1, 500);
+        int commandsIdempotencyWindow = clampInt(getConfig().getInt("sync.commandsIdempotencyWindow", 512), 16, 100_000);
 
         int httpMaxAttempts = Math.max(1, getConfig().getInt("sync.httpMaxAttempts", 4));
         long httpBaseBackoffMillis = Math.max(50L, getConfig().getLong("sync.httpBaseBackoffMillis", 250L));
         long httpMaxBackoffMillis = Math.max(httpBaseBackoffMillis, getConfig().getLong("sync.httpMaxBackoffMillis", 5000L));
 
+        boolean extendedStats = getConfig().getBoolean("stats.extendedCounters", true);
+        long handoffBudgetMicros = Math.max(100L, getConfig().getLong("tick.handoffBudgetMicros", 2000L));
+        long jobBudgetMicros = Math.max(100L, getConfig().getLong("tick.jobBudgetMicros", 3000L));
+
+        this.loginPolicy = BanReadiness.LoginPolicy.parse(
+                getConfig().getString("startup.loginPolicy", "hold"), BanReadiness.LoginPolicy.HOLD);
+        this.loginHoldRemainingMillis = Math.max(0L, Math.min(10_000L, getConfig().getLong("startup.holdMillis", 2000L)));
+        this.notReadyMessage = getConfig().getString("startup.notReadyMessage",
+                "Server is starting, please reconnect in a few seconds.");
+        int startupSyncTimeoutSeconds = clampInt(getConfig().getInt("startup.syncTimeoutSeconds", 10), 1, 600);
+
         String bansFileName = getConfig().getString("cache.bansFile", "bans-cache.json");
         this.banCachePath = getDataFolder().toPath().resolve(bansFileName);
+        String statsCheckpointFileName = getConfig().getString("cache.statsCheckpointFile", "stats-checkpoint.json");
+        String commandsStateFileName = getConfig().getString("cache.commandsStateFile", "commands-state.json");
 
         this.backendClient = new BackendClient(
                 baseUrl,
@@ -114,83 +219,142 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
                 Duration.ofSeconds(10),
                 httpMaxAttempts,
                 httpBaseBackoffMillis,
-                httpMaxBackoffMillis
+                httpMaxBackoffMillis,
+                log
         );
 
+        this.mainThreadQueue = new MainThreadQueue(getLogger(), handoffBudgetMicros);
+        this.tickExecutor = new TickBudgetExecutor(getLogger(), jobBudgetMicros);
+        this.tickRecorder = new TickRecorder(metricsSeconds);
         this.banCache = new BanCache(banCachePath, getLogger());
-        this.stats = new StatsAccumulator(getLogger());
-        banCache.loadFromDisk();
+        StatCounterRegistry statCounters = new StatCounterRegistry();
+        if (extendedStats) StatsListener.registerExtendedCounters(statCounters);
+        this.stats = new StatsAccumulator(getLogger(), statCounters);
+        this.statsUploader = new StatsUploader(backendClient, stats, getLogger(),
+                statsChunkMaxPlayers, statsChunkMaxBytes, statsMaxInFlight);
+        this.statsCheckpoint = new StatsCheckpoint(getDataFolder().toPath().resolve(statsCheckpointFileName), getLogger());
+        this.commandJournal = new CommandJournal(banCachePath.resolveSibling(commandsStateFileName), getLogger(),
+                commandsIdempotencyWindow);
+        commandJournal.loadFromDisk();
+        this.commandBlocker = loadCommandBlocker();
+        statsCheckpoint.replayInto(stats);
 
         getServer().getPluginManager().registerEvents(this, this);
+        getServer().getPluginManager().registerEvents(new StatsListener(stats, this::safeXuid), this);
 
-        this.bandwidthMeter = createBandwidthMeter();
-        if (bandwidthMeter == null) {
-            logInfo("Metrics", "Bandwidth meter disabled. " + INFO + "rxKbps/txKbps will be " + ACCENT + "null" + INFO + ".");
-        } else {
-            logOk("Metrics", "Bandwidth meter enabled: " + ACCENT + bandwidthMeter.getClass().getSimpleName());
+        // Collectors come from META-INF/services (CPU, bandwidth per metrics.networkScope, disk I/O, ...)
+        this.metricsSampler = new MetricsSampler(
+                MetricsSampler.discover(this, log),
+                Math.max(100L, getConfig().getLong("metrics.sampleMillis", 1000L)),
+                log
+        );
+        metricsSampler.start();
+        if (!metricsSampler.metricNames().contains("rxKbps")) {
+            logInfo("Metrics", "Bandwidth meter disabled; rxKbps/txKbps will be null");
+        }
+
+        this.metricsBatch = new MetricsBatchBuffer(
+                clampInt(getConfig().getInt("metrics.batch.maxSamples", 20), 1, 1000),
+                Math.max(0L, getConfig().getLong("metrics.batch.maxAgeSeconds", 300L)) * 1000L
+        );
+        int liveSeconds = getConfig().getInt("metrics.batch.liveSeconds", 0);
+        this.liveMetricsMillis = (liveSeconds <= 0) ? 0L : Math.max(metricsSeconds, liveSeconds) * 1000L;
+
+        if (getConfig().getBoolean("metrics.backlog.enabled", true)) {
+            this.metricsBacklog = openMetricsBacklog();
+            this.metricsBacklogBatchSize = clampInt(getConfig().getInt("metrics.backlog.batchSize", 100), 1, 1000);
+            if (metricsBacklog != null && metricsBacklog.size() > 0) {
+                logInfo("Metrics", "Metrics backlog restored", "points", metricsBacklog.size());
+            }
+        }
+
+        if (getConfig().getBoolean("watchdog.enabled", true)) {
+            this.stallWatchdog = new StallWatchdog(
+                    Thread.currentThread(),
+                    Math.max(100L, getConfig().getLong("watchdog.thresholdMillis", 1000L)),
+                    clampInt(getConfig().getInt("watchdog.sampleIntervalMillis", 20), 1, 1000),
+                    this::pluginPackages,
+                    getConfig().getBoolean("watchdog.dumpToDisk", true)
+                            ? getDataFolder().toPath().resolve("stalls") : null,
+                    log
+            );
+            stallWatchdog.start();
+        }
+
+        if (getConfig().getBoolean("metrics.jfr.enabled", false)) {
+            try {
+                JfrCollector jfr = new JfrCollector(Thread.currentThread());
+                jfr.start();
+                this.jfrCollector = jfr;
+                logOk("Metrics", "JFR collector enabled");
+            } catch (Throwable t) {
+                logWarn("Metrics", "JFR collector unavailable; jvm metrics will be omitted", "err", t.toString());
+            }
+        }
+
+        if (getConfig().getBoolean("web.enabled", false)) {
+            String bind = getConfig().getString("web.bind", "127.0.0.1");
+            int port = clampInt(getConfig().getInt("web.port", 9225), 1, 65535);
+            String path = getConfig().getString("web.path", "/metrics");
+            try {
+                MetricsHttpServer server = new MetricsHttpServer(bind, port, path, this::renderOpenMetrics, log);
+                server.start();
+                this.webServer = server;
+                logOk("Web", "Metrics endpoint listening", "url", "http://" + bind + ":" + port + path);
+            } catch (Throwable t) {
+                logWarn("Web", "Metrics endpoint failed to start", "bind", bind, "port", port, "err", t.toString());
+            }
         }
 
         if (baseUrl != null && (baseUrl.contains("127.0.0.1") || baseUrl.contains("localhost"))) {
-            logWarn("Config", "api.baseUrl points to localhost " + DIM + "(" + baseUrl + ")" + WARN + ". "
-                    + INFO + "If the backend runs on another machine, set it to " + ACCENT + "http://<BACKEND_HOST>:<PORT>");
+            logWarn("Config", "api.baseUrl points to localhost; if the backend runs on another machine, "
+                    + "set it to http://<BACKEND_HOST>:<PORT>", "baseUrl", baseUrl);
         }
 
         backendClient.healthCheckAsync(resOpt -> {
             if (resOpt.isEmpty()) {
-                logErr("Backend", "Health check " + ERR + "FAILED" + INFO + ". baseUrl=" + ACCENT + safeInline(baseUrl));
+                logErr("Backend", "Health check FAILED", "baseUrl", baseUrl);
                 return;
             }
             BackendClient.HealthResponse res = resOpt.get();
-            String db = (res.dbOk() == null) ? (WARN + "unknown") : (res.dbOk() ? (OK + "OK") : (ERR + "FAIL"));
-            logOk("Backend", "Reachable. status=" + ACCENT + res.status()
-                    + OK + " serverTime=" + ACCENT + res.serverTime()
-                    + OK + " db=" + db);
+            String db = (res.dbOk() == null) ? "unknown" : (res.dbOk() ? "OK" : "FAIL");
+            logOk("Backend", "Reachable", "status", res.status(), "serverTime", res.serverTime(), "db", db);
         });
 
-        // 1) Ban changes poll
+        // 0) Main-thread handoff + heavy command jobs (once per tick, each time-budgeted)
         getServer().getScheduler().scheduleRepeatingTask(this, () -> {
-            if (shuttingDown.get()) return;
-
-            backendClient.fetchBanChangesAsync(banCache.getSinceCursor(), result -> {
-                if (result.isEmpty()) return;
-
-                BanCache.ApplyResult apply = banCache.applyChanges(result.get());
-                if (!apply.changed()) return;
-
-                banCache.saveToDiskAtomic();
-
-                if (apply.newlyBanned() != null && !apply.newlyBanned().isEmpty()) {
-                    for (BanEntry b : apply.newlyBanned()) {
-                        if (b == null) continue;
+            tickRecorder.onTick();
+            if (stallWatchdog != null) stallWatchdog.beat();
+            mainThreadQueue.drain();
+            tickExecutor.runTick();
+        }, 1);
 
-                        String playerName = null;
-                        Player online = (b.xuid() == null) ? null : findOnlineByXuid(b.xuid());
-                        if (online != null) playerName = online.getName();
+        // 1) Ban changes poll (starts once the cache is loaded; the first success makes enforcement READY)
+        getServer().getScheduler().scheduleRepeatingTask(this, () -> {
+            if (shuttingDown.get() || !banReadiness.isLoaded()) return;
+            pollBanChanges();
+        }, bansPollSeconds * 20, true);
 
-                        logWarn("BanSync", "NEW BAN " + DIM + "→ " + WARN
-                                + "banId=" + ACCENT + b.banId() + WARN
-                                + ", xuid=" + ACCENT + b.xuid() + WARN
-                                + ", playerName=" + ACCENT + (playerName == null ? "n/a" : playerName) + WARN
-                                + ", reason=" + ACCENT + safeInline(b.reason()) + WARN
-                                + ", createdAt=" + ACCENT + b.createdAt() + WARN
-                                + ", expiresAt=" + ACCENT + b.expiresAt() + WARN
-                                + ", revokedAt=" + ACCENT + b.revokedAt() + WARN
-                                + ", updatedAt=" + ACCENT + b.updatedAt());
-                    }
-                }
+        // 1b) Startup: cache load + catch-up sync off the main thread
+        // The sync timeout counts from the end of the load, so READY is reachable however long the load takes.
+        Thread startup = new Thread(() -> {
+            try {
+                banCache.loadFromDisk();
+            } finally {
+                banReadiness.markLoaded();
+            }
+            if (shuttingDown.get()) return;
+            pollBanChanges();
 
-                if (apply.newlyBanned() != null) {
-                    for (BanEntry newlyBanned : apply.newlyBanned()) {
-                        if (newlyBanned == null || newlyBanned.xuid() == null) continue;
-                        Player p = findOnlineByXuid(newlyBanned.xuid());
-                        if (p != null) {
-                            String kickMessage = banCache.buildKickMessage(newlyBanned);
-                            getServer().getScheduler().scheduleTask(this, () -> kickPlayer(p, kickMessage));
-                        }
-                    }
-                }
-            });
-        }, bansPollSeconds * 20, true);
+            try {
+                Thread.sleep(startupSyncTimeoutSeconds * 1000L);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!shuttingDown.get() && banReadiness.markReady(true)) onBanEnforcementReady();
+        }, "BanBridge-Startup");
+        startup.setDaemon(true);
+        startup.start();
 
         // 2) Presence push
         getServer().getScheduler().scheduleRepeatingTask(this, () -> {
@@ -218,9 +382,8 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
 
             backendClient.postPresenceAsync(presence, ok -> {
                 if (!ok) {
-                    logWarn("Presence", "POST /api/server/presence failed " + DIM + "→ " + WARN
-                            + "serverKey=" + ACCENT + safeInline(normalizedServerKey()) + WARN
-                            + ", snapshot=true players=" + ACCENT + players.size());
+                    logWarn("Presence", "POST /api/server/presence failed",
+                            "serverKey", normalizedServerKey(), "snapshot", true, "players", players.size());
                 }
             });
         }, presenceSeconds * 20, true);
@@ -241,17 +404,15 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         getServer().getScheduler().scheduleRepeatingTask(this, () -> {
             if (shuttingDown.get()) return;
 
-            var batch = stats.drainBatch();
-            if (batch.players() == null || batch.players().isEmpty()) return;
-
-            backendClient.postStatsBatchAsync(batch, ok -> {
-                if (!ok) {
-                    logWarn("Stats", "Flush failed; " + INFO + "will retry later.");
-                    stats.requeue(batch);
-                }
-            });
+            statsUploader.flush();
         }, statsFlushSeconds * 20, true);
 
+        // 4b) Stats checkpoint (unacknowledged deltas survive crashes/restarts)
+        getServer().getScheduler().scheduleRepeatingTask(this, () -> {
+            if (shuttingDown.get()) return;
+            statsCheckpoint.write(statsUploader.snapshotUnacked());
+        }, statsCheckpointSeconds * 20, true);
+
         // 5) Metrics push
         getServer().getScheduler().scheduleRepeatingTask(this, () -> {
             if (shuttingDown.get()) return;
@@ -259,23 +420,35 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
             String sk = normalizedServerKey();
             if (sk.isEmpty()) {
                 if (warnedMissingServerKey.compareAndSet(false, true)) {
-                    logErr("Metrics", "Disabled: " + ERR + "api.serverKey is missing/empty" + INFO
-                            + " (must be set and unique per instance).");
+                    logErr("Metrics", "Disabled: api.serverKey is missing/empty (must be set and unique per instance)");
                 }
                 return;
             }
 
-            ServerMetricsRequest metrics = collectMetrics();
-            backendClient.postMetricsAsync(metrics, result -> {
-                if (result != null && result.ok()) {
-                    return;
-                }
+            long collectedAt = System.currentTimeMillis();
+            if (!metricsBatch.enabled()) {
+                ServerMetricsRequest metrics = collectMetrics(true);
+                lastMetrics = metrics;
+                postLatestMetrics(collectedAt, metrics, true);
+                return;
+            }
 
-                String sc = (result == null || result.statusCode() == null) ? "n/a" : result.statusCode().toString();
-                logWarn("Metrics", "POST /api/server/metrics failed " + DIM + "→ " + WARN
-                        + "status=" + ACCENT + sc + WARN
-                        + ", serverKey=" + ACCENT + metrics.serverKey());
-            });
+            // Batched: every sample is a history point in the next batch. The live endpoint gets the newest
+            // sample, with the JFR/stall extras since the previous live post, together with each batch
+            // (metrics.batch.liveSeconds: 0) or every liveSeconds; half a period of slack absorbs scheduler jitter.
+            boolean due = metricsBatch.dueWith(collectedAt);
+            boolean live = (liveMetricsMillis <= 0)
+                    ? due
+                    : collectedAt - lastLiveMetricsAt >= liveMetricsMillis - metricsSeconds * 500L;
+            ServerMetricsRequest metrics = collectMetrics(live);
+            lastMetrics = metrics;
+            if (live) {
+                lastLiveMetricsAt = collectedAt;
+                postLatestMetrics(collectedAt, metrics, false);
+            }
+
+            metricsBatch.add(collectedAt, metrics);
+            if (due) postMetricsSamples(metricsBatch.drain());
         }, metricsSeconds * 20, true);
 
         // 6) Commands poll
@@ -283,7 +456,7 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
             if (shuttingDown.get()) return;
             if (!commandsProcessing.compareAndSet(false, true)) return;
 
-            String sinceId = Long.toString(commandsSinceId.get());
+            String sinceId = Long.toString(commandJournal.cursor());
             backendClient.pollCommandsAsync(sinceId, resOpt -> {
                 if (resOpt.isEmpty()) {
                     commandsProcessing.set(false);
@@ -298,7 +471,7 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
                 }
 
                 List<CommandsPollResponse.ServerCommand> commands = incoming.stream()
-                        .filter(cmd -> cmd != null && cmd.id() > commandsSinceId.get())
+                        .filter(cmd -> cmd != null && cmd.id() > commandJournal.cursor())
                         .sorted(Comparator.comparingLong(CommandsPollResponse.ServerCommand::id))
                         .toList();
 
@@ -307,19 +480,21 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
                     return;
                 }
 
-                getServer().getScheduler().scheduleTask(this, () ->
-                        processPolledCommandsSequentially(commands, 0)
-                );
+                mainThreadQueue.submit(() -> processPolledCommandBatch(commands, 0));
             });
         }, commandsPollSeconds * 20, true);
 
-        logOk("Startup", "Enabled. backend=" + ACCENT + safeInline(baseUrl) + OK
-                + " serverKey=" + ACCENT + safeInline(serverKey));
+        this.startupMillis = (System.nanoTime() - enableStart) / 1_000_000L;
+        logOk("Startup", "Enabled", "backend", baseUrl, "serverKey", serverKey,
+                "startupMs", startupMillis, "bans", banReadiness.state());
     }
 
     @Override
     public void onDisable() {
         shuttingDown.set(true);
+        if (stallWatchdog != null) stallWatchdog.stop();
+        if (metricsSampler != null) metricsSampler.stop();
+        if (webServer != null) webServer.stop();
 
         try {
             if (backendClient != null) {
@@ -336,12 +511,157 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         }
 
         try {
-            if (banCache != null) banCache.saveToDiskAtomic();
+            if (statsUploader != null && statsCheckpoint != null) {
+                boolean flushed = statsUploader.flushAndWait(shutdownFlushMillis);
+                statsCheckpoint.writeFinal(statsUploader.snapshotUnacked());
+                if (!flushed) {
+                    logWarn("Shutdown", "Final stats upload incomplete; pending deltas were checkpointed");
+                }
+            }
         } catch (Throwable ignored) {
             // ignore on shutdown
         }
 
-        logInfo("Shutdown", "Disabled.");
+        if (metricsBacklog != null) {
+            try {
+                // Samples still waiting for their batch are backfilled after the restart
+                if (metricsBatch != null) {
+                    for (MetricsBatchBuffer.Sample s : metricsBatch.drain()) metricsBacklog.add(s.collectedAt(), s.metrics());
+                }
+                metricsBacklog.close();
+            } catch (Throwable ignored) {
+                // ignore on shutdown
+            }
+        }
+
+        if (jfrCollector != null) {
+            try {
+                jfrCollector.close();
+            } catch (Throwable ignored) {
+                // ignore on shutdown
+            }
+        }
+
+        try {
+            // Saving before the load finished would overwrite the file with an empty cache
+            if (banCache != null && banReadiness != null && banReadiness.isLoaded()) banCache.saveToDiskAtomic();
+            if (commandJournal != null) commandJournal.saveToDiskAtomic();
+        } catch (Throwable ignored) {
+            // ignore on shutdown
+        }
+
+        logInfo("Shutdown", "Disabled");
+        if (log != null) log.close(1000L);
+    }
+
+    // ----------------------------
+    // Ban enforcement for online players (main thread)
+    // ----------------------------
+
+    /**
+     * One ban changes poll; applies the changes, persists the cache and kicks newly banned online players.
+     */
+    private void pollBanChanges() {
+        long sentAt = System.currentTimeMillis();
+        backendClient.fetchBanChangesAsync(banCache.getSinceCursor(), result -> {
+            if (result.isEmpty()) return;
+
+            long receivedAt = System.currentTimeMillis();
+            lastBanSyncMillis = receivedAt;
+            long previousSent = banPropagation.onFetched(sentAt, receivedAt, result.get().serverTime());
+
+            BanCache.ApplyResult apply = banCache.applyChanges(result.get());
+            if (banReadiness.markReady(false)) onBanEnforcementReady();
+            if (!apply.changed()) return;
+
+            List<BanEntry> newlyBanned = apply.newlyBanned();
+            long appliedAt = System.currentTimeMillis();
+            List<BanEntry> traced = banPropagation.onApplied(newlyBanned, previousSent, receivedAt, appliedAt);
+
+            banCache.saveToDiskAtomic();
+
+            if (newlyBanned == null || newlyBanned.isEmpty()) return;
+
+            // Roster reads and kicks are main-thread work.
+            mainThreadQueue.submit(() -> enforceNewBans(newlyBanned, traced, appliedAt));
+        });
+    }
+
+    private void onBanEnforcementReady() {
+        if (banReadiness.isStale()) {
+            logWarn("Startup", "Ban enforcement ready with cached bans only; first sync did not succeed in time",
+                    "readyMs", banReadiness.readyMillis(), "loadMs", banReadiness.loadMillis(), "bans", banCache.size());
+        } else {
+            logOk("Startup", "Ban enforcement ready",
+                    "readyMs", banReadiness.readyMillis(), "loadMs", banReadiness.loadMillis(), "bans", banCache.size());
+        }
+        // Players admitted before READY (loginPolicy allow/hold) were checked against an incomplete cache
+        mainThreadQueue.submit(this::enforceCacheOnOnlinePlayers);
+    }
+
+    private void enforceCacheOnOnlinePlayers() {
+        for (Player p : getServer().getOnlinePlayers().values()) {
+            String xuid = safeXuid(p);
+            if (xuid == null) continue;
+
+            Optional<BanEntry> ban = banCache.findActiveBan(xuid);
+            if (ban.isEmpty()) continue;
+
+            kickPlayer(p, banCache.buildKickMessage(ban.get()));
+            logWarn("Ban", "Kicked player admitted before ban sync was ready",
+                    "player", p.getName(), "xuid", xuid, "banId", ban.get().banId());
+        }
+    }
+
+    /**
+     * @param traced    bans whose propagation is measured (not catch-up); only their kicks are recorded
+     * @param appliedAt local time the bans became active in the cache (start of the "kick" stage)
+     */
+    private void enforceNewBans(List<BanEntry> newlyBanned, List<BanEntry> traced, long appliedAt) {
+        Map<String, Player> online = onlinePlayersByXuid();
+        List<Player> toKick = new ArrayList<>();
+        List<BanEntry> kickBans = new ArrayList<>();
+        List<String> kickMessages = new ArrayList<>();
+
+        for (BanEntry b : newlyBanned) {
+            if (b == null) continue;
+
+            Player p = (b.xuid() == null) ? null : online.get(b.xuid());
+            String playerName = (p == null) ? null : p.getName();
+
+            logAudit("BanSync", "NEW BAN",
+                    "banId", b.banId(),
+                    "xuid", b.xuid(),
+                    "playerName", playerName,
+                    "reason", b.reason(),
+                    "createdAt", b.createdAt(),
+                    "expiresAt", b.expiresAt(),
+                    "revokedAt", b.revokedAt(),
+                    "updatedAt", b.updatedAt());
+
+            if (p != null) {
+                toKick.add(p);
+                kickBans.add(b);
+                kickMessages.add(banCache.buildKickMessage(b));
+            }
+        }
+
+        if (toKick.isEmpty()) return;
+
+        // A ban wave can hit many online players at once; spread the kicks over ticks.
+        int[] next = {0};
+        tickExecutor.submit("ban-kicks", () -> {
+            int i = next[0]++;
+            kickPlayer(toKick.get(i), kickMessages.get(i));
+            BanEntry ban = kickBans.get(i);
+            if (traced.contains(ban)) banPropagation.onKicked(ban, appliedAt, System.currentTimeMillis());
+            return next[0] < toKick.size();
+        }).thenAccept(report -> {
+            if (report.ticks() > 1) {
+                logInfo("BanSync", "Ban kicks enforced",
+                        "kicks", toKick.size(), "ticks", report.ticks(), "maxTickMs", maxTickMs(report));
+            }
+        });
     }
 
     // ----------------------------
@@ -351,42 +671,81 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onPlayerCommandPreprocess(PlayerCommandPreprocessEvent event) {
         String msg = event.getMessage();
-        if (msg == null) return;
-
-        String trimmed = msg.trim();
-        if (trimmed.isEmpty()) return;
-
-        String lower = trimmed.toLowerCase(Locale.ROOT);
-        if (lower.equals("/ban") || lower.startsWith("/ban ")) {
-            event.setCancelled(true);
+        CommandBlocker.Rule rule = commandBlocker.match(msg);
+        if (rule == null) return;
 
-            event.getPlayer().sendMessage(
-                    PREFIX + ERR + "Banning is disabled. " + INFO + "Please use the " + ACCENT + "website" + INFO + "."
-            );
+        event.setCancelled(true);
+        event.getPlayer().sendMessage(rule.response());
 
-            logWarn("Commands", "Blocked /ban " + DIM + "→ " + WARN
-                    + "player=" + ACCENT + event.getPlayer().getName() + WARN
-                    + ", cmd=" + ACCENT + safeInline(trimmed));
-        }
+        logWarn("Commands", "Blocked player command",
+                "command", rule.command(), "player", event.getPlayer().getName(), "cmd", msg);
     }
 
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onServerCommand(ServerCommandEvent event) {
         String cmd = event.getCommand();
-        if (cmd == null) return;
+        CommandBlocker.Rule rule = commandBlocker.match(cmd);
+        if (rule == null) return;
 
-        String trimmed = cmd.trim();
-        if (trimmed.isEmpty()) return;
+        event.setCancelled(true);
 
-        String lower = trimmed.toLowerCase(Locale.ROOT);
-        if (lower.equals("ban") || lower.startsWith("ban ")) {
-            event.setCancelled(true);
+        String sender = (event.getSender() instanceof ConsoleCommandSender) ? "CONSOLE" : event.getSender().getName();
+        logWarn("Commands", "Blocked console command",
+                "command", rule.command(), "sender", sender, "cmd", cmd);
+    }
 
-            String sender = (event.getSender() instanceof ConsoleCommandSender) ? "CONSOLE" : event.getSender().getName();
-            logWarn("Commands", "Blocked console ban " + DIM + "→ " + WARN
-                    + "sender=" + ACCENT + sender + WARN
-                    + ", cmd=" + ACCENT + safeInline(trimmed));
+    /**
+     * Reads commandBlock.commands. Entries are either a plain command name or
+     * { command, aliases, message }. Without the section only /ban is blocked (previous behaviour).
+     */
+    private CommandBlocker loadCommandBlocker() {
+        List<?> entries = getConfig().getList("commandBlock.commands");
+        List<CommandBlocker.Rule> rules = new ArrayList<>();
+
+        if (entries == null) {
+            rules.add(new CommandBlocker.Rule("ban", List.of(), DEFAULT_BLOCK_RESPONSE));
+        } else {
+            for (Object entry : entries) {
+                CommandBlocker.Rule rule;
+                try {
+                    rule = parseBlockRule(entry);
+                } catch (IllegalArgumentException e) {
+                    rule = null;
+                }
+                if (rule == null) {
+                    logWarn("Config", "Ignoring invalid commandBlock entry", "entry", String.valueOf(entry));
+                    continue;
+                }
+                rules.add(rule);
+            }
         }
+
+        CommandBlocker blocker = new CommandBlocker(rules);
+        logInfo("Commands", "Blocked commands", "commands", blocker.commands());
+        return blocker;
+    }
+
+    private static CommandBlocker.Rule parseBlockRule(Object entry) {
+        if (entry instanceof String name) {
+            String command = trimToNull(name);
+            return command == null ? null : new CommandBlocker.Rule(command, List.of(), DEFAULT_BLOCK_RESPONSE);
+        }
+        if (!(entry instanceof Map<?, ?> map)) return null;
+
+        String command = trimToNull(map.get("command"));
+        if (command == null) return null;
+
+        List<String> aliases = new ArrayList<>();
+        if (map.get("aliases") instanceof List<?> list) {
+            for (Object a : list) {
+                String alias = trimToNull(a);
+                if (alias != null) aliases.add(alias);
+            }
+        }
+
+        String message = trimToNull(map.get("message"));
+        String response = (message == null) ? DEFAULT_BLOCK_RESPONSE : PREFIX + ERR + message;
+        return new CommandBlocker.Rule(command, aliases, response);
     }
 
     // ----------------------------
@@ -399,126 +758,169 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         String xuid = safeXuid(p);
         if (xuid == null) return;
 
+        if (!banReadiness.isReady() && !admitBeforeReady(event, p, xuid)) return;
+
         Optional<BanEntry> ban = banCache.findActiveBan(xuid);
         if (ban.isPresent()) {
             event.setKickMessage(banCache.buildKickMessage(ban.get()));
             event.setCancelled(true);
 
-            logWarn("Ban", "Login blocked " + DIM + "→ " + WARN
-                    + "player=" + ACCENT + p.getName() + WARN
-                    + ", xuid=" + ACCENT + xuid + WARN
-                    + ", banId=" + ACCENT + ban.get().banId());
+            logWarn("Ban", "Login blocked", "player", p.getName(), "xuid", xuid, "banId", ban.get().banId());
         }
     }
 
-    @EventHandler
-    public void onJoin(PlayerJoinEvent event) {
-        Player p = event.getPlayer();
-        String xuid = safeXuid(p);
-        if (xuid == null) return;
-
-        stats.markOnline(xuid, p.getName());
-    }
-
-    @EventHandler
-    public void onQuit(PlayerQuitEvent event) {
-        Player p = event.getPlayer();
-        String xuid = safeXuid(p);
-        if (xuid == null) return;
-
-        stats.markOffline(xuid);
-    }
-
-    @EventHandler
-    public void onDeath(PlayerDeathEvent event) {
-        Player victim = event.getEntity();
-        String victimXuid = safeXuid(victim);
-        if (victimXuid != null) {
-            stats.addDeathDelta(victimXuid, victim.getName(), 1);
-        }
-
-        Player killer = null;
-        try {
-            killer = (Player) victim.getKiller();
-        } catch (Throwable ignored) {
-            // keep null
-        }
-
-        if (killer != null) {
-            String killerXuid = safeXuid(killer);
-            if (killerXuid != null) {
-                stats.addKillDelta(killerXuid, killer.getName(), 1);
+    /**
+     * startup.loginPolicy for a login before ban enforcement is READY.
+     *
+     * @return true to continue with the cache check; false to skip it (login admitted unchecked or rejected)
+     */
+    private boolean admitBeforeReady(PlayerLoginEvent event, Player p, String xuid) {
+        switch (loginPolicy) {
+            case ALLOW -> {
+                if (banReadiness.isLoaded()) return true;
+                logInfo("Ban", "Login admitted before ban cache was loaded", "player", p.getName(), "xuid", xuid);
+                return false;
+            }
+            case HOLD -> {
+                // Only the cache load is waited for (the backend sync can take much longer), and all logins share
+                // one startup.holdMillis budget so a login burst cannot stall the main thread repeatedly.
+                if (banReadiness.isLoaded()) return true;
+                if (loginHoldRemainingMillis > 0) {
+                    long start = System.nanoTime();
+                    boolean loaded = banReadiness.awaitLoaded(loginHoldRemainingMillis);
+                    loginHoldRemainingMillis -= Math.max(1L, (System.nanoTime() - start) / 1_000_000L);
+                    if (loaded) return true;
+                }
+            }
+            case DENY -> {
+                // rejected below
             }
         }
+
+        event.setKickMessage(notReadyMessage);
+        event.setCancelled(true);
+        logWarn("Ban", "Login rejected: ban enforcement not ready",
+                "player", p.getName(), "xuid", xuid, "state", banReadiness.state(), "policy", loginPolicy);
+        return false;
     }
 
     // ----------------------------
     // Backend commands execution
     // ----------------------------
 
-    private void processPolledCommandsSequentially(List<CommandsPollResponse.ServerCommand> commands, int index) {
+    /**
+     * Executes up to commandsAckBatchSize commands in order, then acknowledges all of them in one request.
+     *
+     * At-least-once delivery: the cursor only advances after the batch ACK succeeds, so a failed ACK means the
+     * whole window is re-polled later. Executed IDs are journaled (and persisted before the ACK is sent), so a
+     * re-delivered command is acknowledged again without executing twice. A SHUTDOWN command, or a command
+     * that must not be acknowledged, ends the window; later commands wait for the next batch/poll.
+     */
+    private void processPolledCommandBatch(List<CommandsPollResponse.ServerCommand> commands, int index) {
         if (shuttingDown.get()) {
             commandsProcessing.set(false);
             return;
         }
 
-        if (commands == null || index >= commands.size()) {
-            commandsProcessing.set(false);
-            return;
-        }
+        List<Long> executedIds = new ArrayList<>();
+        List<CommandAckRequest.Result> results = new ArrayList<>();
+        List<CompletableFuture<?>> pendingWork = new ArrayList<>();
+        boolean shutdownAfterAck = false;
+        boolean stopAfterBatch = false;
+        int next = index;
+
+        while (commands != null && next < commands.size() && executedIds.size() < commandsAckBatchSize) {
+            CommandsPollResponse.ServerCommand cmd = commands.get(next);
+            if (cmd == null) {
+                next++;
+                continue;
+            }
 
-        CommandsPollResponse.ServerCommand cmd = commands.get(index);
-        if (cmd == null) {
-            processPolledCommandsSequentially(commands, index + 1);
-            return;
-        }
+            long id = cmd.id();
+            String type = normalizeCommandType(cmd.cmdType());
 
-        long id = cmd.id();
-        String type = normalizeCommandType(cmd.cmdType());
+            if (commandJournal.wasExecuted(id)) {
+                logInfo("Commands", "Duplicate command skipped (already executed, re-acknowledging)",
+                        "id", id, "type", type);
+                executedIds.add(id);
+                next++;
+                continue;
+            }
 
-        logInfo("Commands", "Received command " + DIM + "→ " + INFO
-                + "id=" + ACCENT + id + INFO
-                + ", type=" + ACCENT + safeInline(type)
-                + INFO + ", createdAt=" + ACCENT + safeInline(cmd.createdAt()));
+            logInfo("Commands", "Received command", "id", id, "type", type, "createdAt", cmd.createdAt());
 
-        CommandExecutionOutcome outcome = executeBackendCommand(cmd);
+            CommandExecutionOutcome outcome = executeBackendCommand(cmd);
 
-        if (!outcome.acknowledge()) {
-            logWarn("Commands", "Command not acknowledged " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", type=" + ACCENT + safeInline(type) + WARN
-                    + ", reason=" + ACCENT + safeInline(outcome.logMessage()));
+            if (!outcome.acknowledge()) {
+                logWarn("Commands", "Command not acknowledged",
+                        "id", id, "type", type, "reason", outcome.logMessage());
+                stopAfterBatch = true;
+                break;
+            }
+
+            commandJournal.recordExecuted(id);
+            executedIds.add(id);
+            if (outcome.targetOutcomes() != null) {
+                results.add(new CommandAckRequest.Result(id, outcome.targetOutcomes()));
+            }
+            if (outcome.completion() != null) {
+                pendingWork.add(outcome.completion());
+            }
+            next++;
+
+            if (outcome.shutdownAfterAck()) {
+                shutdownAfterAck = true;
+                break;
+            }
+        }
+
+        if (executedIds.isEmpty()) {
             commandsProcessing.set(false);
             return;
         }
 
-        backendClient.ackCommandAsync(id, ok -> {
+        boolean shutdown = shutdownAfterAck;
+        boolean more = !stopAfterBatch && !shutdownAfterAck && commands != null && next < commands.size();
+        int resumeAt = next;
+        long maxId = executedIds.stream().mapToLong(Long::longValue).max().orElse(0L);
+
+        // Wait for tick-spread work (broadcasts, bulk commands) to finish, so the ACK and per-target results
+        // describe what actually happened. Then persist executed IDs (off the main thread) and ACK.
+        CompletableFuture.allOf(pendingWork.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, err) ->
+                getServer().getScheduler().scheduleTask(this, () -> {
+                    commandJournal.saveToDiskAtomic();
+                    acknowledgeCommandBatch(commands, executedIds, results, maxId, shutdown, more, resumeAt);
+                }, true));
+    }
+
+    private void acknowledgeCommandBatch(List<CommandsPollResponse.ServerCommand> commands, List<Long> executedIds,
+                                         List<CommandAckRequest.Result> results,
+                                         long maxId, boolean shutdown, boolean more, int resumeAt) {
+        backendClient.ackCommandsAsync(executedIds, results, ok -> {
             if (!ok) {
-                logWarn("Commands", "ACK failed " + DIM + "→ " + WARN
-                        + "id=" + ACCENT + id + WARN
-                        + ", type=" + ACCENT + safeInline(type) + WARN
-                        + " (" + INFO + "will retry next poll" + WARN + ")");
+                logWarn("Commands", "Batch ACK failed (will retry next poll)", "ids", List.copyOf(executedIds));
                 commandsProcessing.set(false);
                 return;
             }
 
-            commandsSinceId.updateAndGet(prev -> Math.max(prev, id));
+            commandJournal.advanceCursor(maxId);
+            commandJournal.saveToDiskAtomic();
 
-            logOk("Commands", "ACK successful " + DIM + "→ " + OK
-                    + "id=" + ACCENT + id + OK
-                    + ", type=" + ACCENT + safeInline(type));
+            logOk("Commands", "Batch ACK successful", "count", executedIds.size(), "cursor", maxId);
 
-            if (outcome.shutdownAfterAck()) {
-                logWarn("Commands", "Executing shutdown after ACK " + DIM + "→ " + WARN
-                        + "id=" + ACCENT + id);
-                getServer().getScheduler().scheduleTask(this, () -> getServer().shutdown());
+            if (shutdown) {
+                logWarn("Commands", "Executing shutdown after ACK", "id", maxId);
+                mainThreadQueue.submit(() -> getServer().shutdown());
                 commandsProcessing.set(false);
                 return;
             }
 
-            getServer().getScheduler().scheduleTask(this, () ->
-                    processPolledCommandsSequentially(commands, index + 1)
-            );
+            if (!more) {
+                commandsProcessing.set(false);
+                return;
+            }
+
+            mainThreadQueue.submit(() -> processPolledCommandBatch(commands, resumeAt));
         });
     }
 
@@ -533,169 +935,247 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         try {
             return switch (type) {
                 case "SHUTDOWN" -> {
-                    logWarn("Commands", "Executing command " + DIM + "→ " + WARN
-                            + "id=" + ACCENT + id + WARN
-                            + ", type=" + ACCENT + "SHUTDOWN");
+                    logWarn("Commands", "Executing command", "id", id, "type", "SHUTDOWN");
                     yield CommandExecutionOutcome.ackShutdown("shutdown scheduled after ACK");
                 }
 
                 case "REFRESH_BANS" -> {
                     resetBanCacheToEpoch();
-                    logOk("Commands", "Executed command " + DIM + "→ " + OK
-                            + "id=" + ACCENT + id + OK
-                            + ", type=" + ACCENT + "REFRESH_BANS");
+                    logOk("Commands", "Executed command", "id", id, "type", "REFRESH_BANS");
                     yield CommandExecutionOutcome.ack("ban cache reset");
                 }
 
-                case "KICK" -> executeKickCommand(id, cmd.payloadJson());
-                case "MESSAGE" -> executeMessageCommand(id, cmd.payloadJson());
-                case "BROADCAST" -> executeBroadcastCommand(id, cmd.payloadJson());
+                case "KICK" -> executeKickCommand(cmd);
+                case "MESSAGE" -> executeMessageCommand(cmd);
+                case "BROADCAST" -> executeBroadcastCommand(cmd);
+                case "KICK_BULK" -> executeBulkCommand("KICK_BULK", cmd, true);
+                case "MESSAGE_BULK" -> executeBulkCommand("MESSAGE_BULK", cmd, false);
 
                 default -> {
-                    logWarn("Commands", "Unknown command type " + DIM + "→ " + WARN
-                            + "id=" + ACCENT + id + WARN
-                            + ", type=" + ACCENT + safeInline(type) + WARN
-                            + ", payload=" + ACCENT + clipPayload(cmd.payloadJson()));
+                    logWarn("Commands", "Unknown command type", "id", id, "type", type, "payload", cmd.payloadText());
                     yield CommandExecutionOutcome.ack("unknown command type ignored");
                 }
             };
         } catch (Throwable t) {
-            logErr("Commands", "Execution error " + DIM + "→ " + ERR
-                    + "id=" + ACCENT + id + ERR
-                    + ", type=" + ACCENT + safeInline(type) + ERR
-                    + ", err=" + ACCENT + safeInline(t.getClass().getSimpleName() + ": " + t.getMessage()));
+            logErr("Commands", "Execution error",
+                    "id", id, "type", type, "err", t.getClass().getSimpleName() + ": " + t.getMessage());
             return CommandExecutionOutcome.ack("execution error handled");
         }
     }
 
-    private CommandExecutionOutcome executeKickCommand(long id, String payloadJson) {
-        JsonNode payload = parsePayloadObject("KICK", id, payloadJson);
+    private CommandExecutionOutcome executeKickCommand(CommandsPollResponse.ServerCommand cmd) {
+        long id = cmd.id();
+        CommandPayloads.Kick payload = decodePayload("KICK", cmd, CommandPayloads.Kick.class);
         if (payload == null) {
             return CommandExecutionOutcome.ack("invalid KICK payload");
         }
 
-        String xuid = readTrimmedText(payload, "xuid");
-        String reason = readTrimmedText(payload, "reason");
+        String xuid = payload.xuid();
+        String reason = payload.reason();
 
         if (xuid == null) {
-            logWarn("Commands", "KICK ignored due to missing xuid " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", payload=" + ACCENT + clipPayload(payloadJson));
+            logWarn("Commands", "KICK ignored due to missing xuid", "id", id, "payload", cmd.payloadText());
             return CommandExecutionOutcome.ack("missing xuid");
         }
 
         Player target = findOnlineByXuid(xuid);
         if (target == null) {
-            logWarn("Commands", "KICK target not online " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", xuid=" + ACCENT + xuid);
+            logWarn("Commands", "KICK target not online", "id", id, "xuid", xuid);
             return CommandExecutionOutcome.ack("player not online");
         }
 
         String finalReason = (reason == null) ? "You were kicked by the backend." : reason;
         kickPlayer(target, finalReason);
 
-        logOk("Commands", "KICK executed " + DIM + "→ " + OK
-                + "id=" + ACCENT + id + OK
-                + ", player=" + ACCENT + target.getName() + OK
-                + ", xuid=" + ACCENT + xuid + OK
-                + ", reason=" + ACCENT + safeInline(finalReason));
+        logOk("Commands", "KICK executed",
+                "id", id, "player", target.getName(), "xuid", xuid, "reason", finalReason);
 
         return CommandExecutionOutcome.ack("kick executed");
     }
 
-    private CommandExecutionOutcome executeMessageCommand(long id, String payloadJson) {
-        JsonNode payload = parsePayloadObject("MESSAGE", id, payloadJson);
+    private CommandExecutionOutcome executeMessageCommand(CommandsPollResponse.ServerCommand cmd) {
+        long id = cmd.id();
+        CommandPayloads.Message payload = decodePayload("MESSAGE", cmd, CommandPayloads.Message.class);
         if (payload == null) {
             return CommandExecutionOutcome.ack("invalid MESSAGE payload");
         }
 
-        String xuid = readTrimmedText(payload, "xuid");
-        String message = readTrimmedText(payload, "message");
+        String xuid = payload.xuid();
+        String message = payload.message();
 
         if (xuid == null) {
-            logWarn("Commands", "MESSAGE ignored due to missing xuid " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", payload=" + ACCENT + clipPayload(payloadJson));
+            logWarn("Commands", "MESSAGE ignored due to missing xuid", "id", id, "payload", cmd.payloadText());
             return CommandExecutionOutcome.ack("missing xuid");
         }
 
         if (message == null) {
-            logWarn("Commands", "MESSAGE ignored due to missing message " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", xuid=" + ACCENT + xuid + WARN
-                    + ", payload=" + ACCENT + clipPayload(payloadJson));
+            logWarn("Commands", "MESSAGE ignored due to missing message",
+                    "id", id, "xuid", xuid, "payload", cmd.payloadText());
             return CommandExecutionOutcome.ack("missing message");
         }
 
         Player target = findOnlineByXuid(xuid);
         if (target == null) {
-            logWarn("Commands", "MESSAGE target not online " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", xuid=" + ACCENT + xuid);
+            logWarn("Commands", "MESSAGE target not online", "id", id, "xuid", xuid);
             return CommandExecutionOutcome.ack("player not online");
         }
 
         sendMessageToPlayer(target, message);
 
-        logOk("Commands", "MESSAGE executed " + DIM + "→ " + OK
-                + "id=" + ACCENT + id + OK
-                + ", player=" + ACCENT + target.getName() + OK
-                + ", xuid=" + ACCENT + xuid + OK
-                + ", message=" + ACCENT + safeInline(message));
+        logOk("Commands", "MESSAGE executed",
+                "id", id, "player", target.getName(), "xuid", xuid, "message", message);
 
         return CommandExecutionOutcome.ack("message executed");
     }
 
-    private CommandExecutionOutcome executeBroadcastCommand(long id, String payloadJson) {
-        JsonNode payload = parsePayloadObject("BROADCAST", id, payloadJson);
+    private CommandExecutionOutcome executeBroadcastCommand(CommandsPollResponse.ServerCommand cmd) {
+        long id = cmd.id();
+        CommandPayloads.Broadcast payload = decodePayload("BROADCAST", cmd, CommandPayloads.Broadcast.class);
         if (payload == null) {
             return CommandExecutionOutcome.ack("invalid BROADCAST payload");
         }
 
-        String message = readTrimmedText(payload, "message");
+        String message = payload.message();
         if (message == null) {
-            logWarn("Commands", "BROADCAST ignored due to missing message " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", payload=" + ACCENT + clipPayload(payloadJson));
+            logWarn("Commands", "BROADCAST ignored due to missing message", "id", id, "payload", cmd.payloadText());
             return CommandExecutionOutcome.ack("missing message");
         }
 
-        int recipients = broadcastToAllPlayers(message);
-
-        logOk("Commands", "BROADCAST executed " + DIM + "→ " + OK
-                + "id=" + ACCENT + id + OK
-                + ", recipients=" + ACCENT + recipients + OK
-                + ", message=" + ACCENT + safeInline(message));
+        CompletableFuture<TickBudgetExecutor.Report> done = broadcastToAllPlayers("BROADCAST#" + id, message)
+                .whenComplete((report, err) -> {
+                    if (report == null) return;
+                    logOk("Commands", "BROADCAST executed",
+                            "id", id, "recipients", report.steps(), "message", message,
+                            "ticks", report.ticks(), "maxTickMs", maxTickMs(report));
+                });
 
-        return CommandExecutionOutcome.ack("broadcast executed");
+        return CommandExecutionOutcome.ackWhenDone("broadcast executed", null, done);
     }
 
-    private JsonNode parsePayloadObject(String type, long id, String payloadJson) {
-        try {
-            if (payloadJson == null || payloadJson.trim().isEmpty()) {
-                logWarn("Commands", "Empty payload_json " + DIM + "→ " + WARN
-                        + "id=" + ACCENT + id + WARN
-                        + ", type=" + ACCENT + type);
-                return null;
+    /**
+     * KICK_BULK / MESSAGE_BULK: resolves all targets in a single pass over the online roster and reports
+     * one outcome per target XUID (EXECUTED, NOT_ONLINE, INVALID) with the command's ACK. The kicks/messages
+     * themselves run on the tick executor, so a large target list is spread over several ticks.
+     */
+    private CommandExecutionOutcome executeBulkCommand(String type, CommandsPollResponse.ServerCommand cmd, boolean kick) {
+        long id = cmd.id();
+        CommandPayloads.Bulk payload = decodePayload(type, cmd, CommandPayloads.Bulk.class);
+        if (payload == null) {
+            return CommandExecutionOutcome.ack("invalid " + type + " payload");
+        }
+
+        String defaultText = kick ? payload.reason() : payload.message();
+
+        Map<String, String> textByXuid = new HashMap<>();
+        Map<String, String> outcomes = new LinkedHashMap<>();
+
+        for (String xuid : payload.xuids()) {
+            addBulkTarget(xuid, defaultText, kick, textByXuid, outcomes);
+        }
+
+        for (CommandPayloads.Target t : payload.targets()) {
+            String text = kick ? t.reason() : t.message();
+            addBulkTarget(t.xuid(), text == null ? defaultText : text, kick, textByXuid, outcomes);
+        }
+
+        if (outcomes.isEmpty()) {
+            logWarn("Commands", "Bulk command ignored due to missing targets",
+                    "id", id, "type", type, "payload", cmd.payloadText());
+            return CommandExecutionOutcome.ack("missing targets");
+        }
+
+        // Single roster pass; act after the scan so kicks cannot disturb the iteration.
+        List<Player> hits = new ArrayList<>();
+        List<String> hitXuids = new ArrayList<>();
+        if (!textByXuid.isEmpty()) {
+            for (Player p : getServer().getOnlinePlayers().values()) {
+                String px = safeXuid(p);
+                if (px != null && textByXuid.containsKey(px)) {
+                    hits.add(p);
+                    hitXuids.add(px);
+                }
             }
+        }
 
-            JsonNode node = objectMapper.readTree(payloadJson);
-            if (node == null || !node.isObject()) {
-                logWarn("Commands", "payload_json is not an object " + DIM + "→ " + WARN
-                        + "id=" + ACCENT + id + WARN
-                        + ", type=" + ACCENT + type + WARN
-                        + ", payload=" + ACCENT + clipPayload(payloadJson));
-                return null;
+        int[] next = {0};
+        int[] executed = {0};
+        TickBudgetExecutor.Job job = () -> {
+            if (next[0] >= hits.size()) return false;
+            int i = next[0]++;
+            Player p = hits.get(i);
+            String xuid = hitXuids.get(i);
+            if (!p.isOnline()) return next[0] < hits.size();   // left since the roster pass; stays NOT_ONLINE
+
+            String text = textByXuid.get(xuid);
+            if (kick) {
+                kickPlayer(p, text);
+            } else {
+                sendMessageToPlayer(p, text);
             }
+            outcomes.put(xuid, "EXECUTED");
+            executed[0]++;
+            return next[0] < hits.size();
+        };
+
+        CompletableFuture<TickBudgetExecutor.Report> done = tickExecutor.submit(type + "#" + id, job)
+                .whenComplete((report, err) -> {
+                    int notOnline = 0;
+                    int invalid = 0;
+                    for (Map.Entry<String, String> e : outcomes.entrySet()) {
+                        if (e.getValue() == null) {
+                            e.setValue("NOT_ONLINE");
+                            notOnline++;
+                        } else if ("INVALID".equals(e.getValue())) {
+                            invalid++;
+                        }
+                    }
+
+                    logOk("Commands", "Bulk command executed",
+                            "id", id, "type", type,
+                            "targets", outcomes.size(), "executed", executed[0],
+                            "notOnline", notOnline, "invalid", invalid,
+                            "ticks", report == null ? null : report.ticks(),
+                            "maxTickMs", report == null ? null : maxTickMs(report));
+                });
 
-            return node;
+        return CommandExecutionOutcome.ackWhenDone(type.toLowerCase(Locale.ROOT) + " executed", outcomes, done);
+    }
+
+    /**
+     * Registers one bulk target; outcome stays null (pending) until the roster pass, or INVALID if the target
+     * has no usable text. Kicks without text fall back to the default kick reason.
+     */
+    private static void addBulkTarget(String xuid, String text, boolean kick,
+                                      Map<String, String> textByXuid, Map<String, String> outcomes) {
+        if (text == null && !kick) {
+            outcomes.put(xuid, "INVALID");
+            textByXuid.remove(xuid);
+            return;
+        }
+        textByXuid.put(xuid, text == null ? "You were kicked by the backend." : text);
+        outcomes.put(xuid, null);
+    }
+
+    /**
+     * Decodes a command payload (embedded object or legacy JSON string) into its typed record.
+     * Logs and returns null if the payload is missing, not an object or malformed.
+     */
+    private <T> T decodePayload(String type, CommandsPollResponse.ServerCommand cmd, Class<T> payloadType) {
+        long id = cmd.id();
+        try {
+            T payload = commandPayloads.decode(cmd.payload(), payloadType);
+            if (payload == null) {
+                logWarn("Commands", "Empty payload", "id", id, "type", type);
+            }
+            return payload;
+        } catch (CommandPayloads.NotAnObjectException e) {
+            logWarn("Commands", "Payload is not an object", "id", id, "type", type, "payload", cmd.payloadText());
+            return null;
         } catch (Throwable t) {
-            logWarn("Commands", "Failed to parse payload_json " + DIM + "→ " + WARN
-                    + "id=" + ACCENT + id + WARN
-                    + ", type=" + ACCENT + type + WARN
-                    + ", err=" + ACCENT + safeInline(t.getClass().getSimpleName() + ": " + t.getMessage()) + WARN
-                    + ", payload=" + ACCENT + clipPayload(payloadJson));
+            logWarn("Commands", "Failed to parse payload",
+                    "id", id, "type", type,
+                    "err", t.getClass().getSimpleName() + ": " + t.getMessage(),
+                    "payload", cmd.payloadText());
             return null;
         }
     }
@@ -704,14 +1184,14 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         try {
             if (banCachePath != null) Files.deleteIfExists(banCachePath);
         } catch (Throwable t) {
-            logWarn("BanCache", "Failed to delete cache file: " + safeInline(t.getMessage()));
+            logWarn("BanCache", "Failed to delete cache file", "err", t.getMessage());
         }
 
         try {
             this.banCache = new BanCache(banCachePath, getLogger());
             this.banCache.loadFromDisk();
         } catch (Throwable t) {
-            logWarn("BanCache", "Failed to re-init: " + safeInline(t.getMessage()));
+            logWarn("BanCache", "Failed to re-init", "err", t.getMessage());
         }
     }
 
@@ -719,7 +1199,11 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
     // Metrics collection
     // ----------------------------
 
-    private ServerMetricsRequest collectMetrics() {
+    /**
+     * @param withExtras drain the window accumulators (JFR, stalls) into this sample (only samples posted to
+     *                   the latest-value endpoint carry them)
+     */
+    private ServerMetricsRequest collectMetrics(boolean withExtras) {
         String sk = normalizedServerKey();
 
         Runtime rt = Runtime.getRuntime();
@@ -731,15 +1215,9 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         int max = getServer().getMaxPlayers();
         Integer playersMax = (max >= 0) ? max : null;
 
-        Double cpuLoad = null;
-        try {
-            var os = ManagementFactory.getOperatingSystemMXBean();
-            if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
-                cpuLoad = sanitizeCpuLoad(sunOs.getSystemCpuLoad());
-            }
-        } catch (Throwable ignored) {
-            cpuLoad = null;
-        }
+        // 1 Hz samples since the previous push; the scalar fields carry the window average
+        Map<String, ServerMetricsRequest.MetricWindow> samples = metricsSampler.drain();
+        Double cpuLoad = sanitizeCpuLoad(average(samples, "cpuLoad"));
 
         Double tps = null;
         try {
@@ -751,18 +1229,13 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
             tps = null;
         }
 
-        Double rxKbps = null;
-        Double txKbps = null;
-        try {
-            if (bandwidthMeter != null) {
-                BandwidthMeter.Result r = bandwidthMeter.sampleKbps();
-                rxKbps = normalizeKbps(r.rxKbps());
-                txKbps = normalizeKbps(r.txKbps());
-            }
-        } catch (Throwable ignored) {
-            rxKbps = null;
-            txKbps = null;
-        }
+        // Tick durations since the previous push (TPS alone hides short stalls)
+        TickRecorder.Window ticks = tickRecorder.drainWindow();
+
+        Double rxKbps = normalizeKbps(average(samples, "rxKbps"));
+        Double txKbps = normalizeKbps(average(samples, "txKbps"));
+        Double diskReadKBps = normalizeKbps(average(samples, "diskReadKBps"));
+        Double diskWriteKBps = normalizeKbps(average(samples, "diskWriteKBps"));
 
         return new ServerMetricsRequest(
                 sk,
@@ -773,23 +1246,344 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
                 playersMax,
                 tps,
                 rxKbps,
-                txKbps
+                txKbps,
+                diskReadKBps,
+                diskWriteKBps,
+                (ticks == null) ? null : ticks.p50Ms(),
+                (ticks == null) ? null : ticks.p95Ms(),
+                (ticks == null) ? null : ticks.p99Ms(),
+                (ticks == null) ? null : ticks.maxMs(),
+                (ticks == null) ? null : ticks.slowTicks(),
+                banPropagation.snapshot(),
+                (jfrCollector == null || !withExtras) ? null : jfrCollector.drain(),
+                (stallWatchdog == null || !withExtras) ? null : stallWatchdog.drainReports(),
+                samples
         );
     }
 
-    private BandwidthMeter createBandwidthMeter() {
+    private static Double average(Map<String, ServerMetricsRequest.MetricWindow> samples, String metric) {
+        ServerMetricsRequest.MetricWindow w = samples.get(metric);
+        return (w == null) ? null : w.avg();
+    }
+
+    /**
+     * Latest-value push (live dashboards). Without batching a failed sample goes to the backlog; with batching
+     * its scalar values are already part of the batch.
+     */
+    private void postLatestMetrics(long collectedAt, ServerMetricsRequest metrics, boolean backlogOnFailure) {
+        backendClient.postMetricsAsync(metrics, result -> {
+            if (result != null && result.ok()) {
+                if (backlogOnFailure) backfillMetrics();
+                return;
+            }
+
+            Integer status = (result == null) ? null : result.statusCode();
+            if (backlogOnFailure && metricsBacklog != null && isRetryableStatus(status)) {
+                metricsBacklog.add(collectedAt, metrics);
+            }
+
+            String sc = (status == null) ? "n/a" : status.toString();
+            logWarn("Metrics", "POST /api/server/metrics failed", "status", sc, "serverKey", metrics.serverKey());
+        });
+    }
+
+    /**
+     * One request for all samples buffered since the previous batch; on a transient failure they go to the
+     * backlog and are backfilled later.
+     */
+    private void postMetricsSamples(List<MetricsBatchBuffer.Sample> samples) {
+        if (samples.isEmpty()) return;
+
+        List<MetricsBatchRequest.Point> points = new ArrayList<>(samples.size());
+        for (MetricsBatchBuffer.Sample s : samples) points.add(MetricsBatchRequest.Point.of(s.collectedAt(), s.metrics()));
+
+        backendClient.postMetricsBatchAsync(new MetricsBatchRequest(normalizedServerKey(), points), result -> {
+            if (result != null && result.ok()) {
+                backfillMetrics();
+                return;
+            }
+
+            Integer status = (result == null) ? null : result.statusCode();
+            if (metricsBacklog != null && isRetryableStatus(status)) {
+                for (MetricsBatchBuffer.Sample s : samples) metricsBacklog.add(s.collectedAt(), s.metrics());
+            }
+
+            String sc = (status == null) ? "n/a" : status.toString();
+            logWarn("Metrics", "POST /api/server/metrics/batch failed", "status", sc, "points", points.size());
+        });
+    }
+
+    private MetricsBacklog openMetricsBacklog() {
         try {
-            if (isLinux()) {
-                String iface = getConfig().getString("metrics.netInterface");
-                return new LinuxBandwidthMeter(iface);
+            if (getConfig().getBoolean("metrics.backlog.persist", true)) {
+                int kb = clampInt(getConfig().getInt("metrics.backlog.maxDiskKb", 256), 4, 65536);
+                return MetricsBacklog.onDisk(getDataFolder().toPath().resolve("metrics-backlog.bin"), kb * 1024);
             }
-            return new OshiBandwidthMeter();
+            int kb = clampInt(getConfig().getInt("metrics.backlog.maxMemoryKb", 128), 4, 65536);
+            return MetricsBacklog.inMemory(kb * 1024);
         } catch (Throwable t) {
-            logWarn("Metrics", "Bandwidth meter init failed: " + safeInline(t.getMessage()));
+            logWarn("Metrics", "Metrics backlog unavailable; failed pushes will be lost", "err", t.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Posts buffered points oldest-first, one batch at a time, until the backlog is empty or a batch fails.
+     * Runs on HttpClient threads; at most one chain at a time.
+     */
+    private void backfillMetrics() {
+        if (metricsBacklog == null || metricsBacklog.size() == 0) return;
+        if (!metricsBackfilling.compareAndSet(false, true)) return;
+        postNextMetricsBatch();
+    }
+
+    private void postNextMetricsBatch() {
+        MetricsBacklog.Peek peek = metricsBacklog.peekOldest(metricsBacklogBatchSize);
+        if (peek.points().isEmpty() || shuttingDown.get()) {
+            metricsBacklog.release(peek);
+            metricsBackfilling.set(false);
+            return;
+        }
+
+        backendClient.postMetricsBatchAsync(new MetricsBatchRequest(normalizedServerKey(), peek.points()), result -> {
+            if (result == null || !result.ok()) {
+                metricsBacklog.release(peek);
+                metricsBackfilling.set(false);
+                logWarn("Metrics", "POST /api/server/metrics/batch failed; backlog kept", "points", metricsBacklog.size());
+                return;
+            }
+            metricsBacklog.remove(peek);
+            if (metricsBacklog.size() == 0) {
+                logInfo("Metrics", "Metrics backlog drained", "dropped", metricsBacklog.dropped());
+            }
+            postNextMetricsBatch();
+        });
+    }
+
+    /**
+     * No response (network), 5xx, 408 and 429 are transient; other 4xx would fail again on backfill.
+     */
+    private static boolean isRetryableStatus(Integer status) {
+        return status == null || status >= 500 || status == 408 || status == 429;
+    }
+
+    /**
+     * Package of each plugin's main class → plugin name, for stall attribution (BanBridge included).
+     */
+    private Map<String, String> pluginPackages() {
+        Map<String, String> out = new HashMap<>();
+        for (Plugin p : getServer().getPluginManager().getPlugins().values()) {
+            out.put(p.getClass().getPackageName(), p.getName());
+        }
+        return out;
+    }
+
+    // ----------------------------
+    // Scrape endpoint (web.enabled)
+    // ----------------------------
+
+    /**
+     * Runs on the web thread; reads only counters and snapshots that are maintained anyway.
+     */
+    private void renderOpenMetrics(OpenMetricsWriter w) {
+        long now = System.currentTimeMillis();
+
+        w.gauge("banbridge_ban_cache_size", "Active bans in the local cache", banCache.size());
+        w.gauge("banbridge_ban_enforcement_ready", "1 once the ban cache is loaded and synced (or the sync timed out)",
+                banReadiness.isReady() ? 1 : 0);
+        w.gauge("banbridge_startup_seconds", "Duration of onEnable", startupMillis / 1000.0);
+        Long readyMillis = banReadiness.readyMillis();
+        w.gauge("banbridge_time_to_ready_seconds", "onEnable start until ban enforcement was ready",
+                (readyMillis == null) ? null : readyMillis / 1000.0);
+        long lastSync = lastBanSyncMillis;
+        w.gauge("banbridge_ban_sync_age_seconds", "Seconds since the last successful ban changes poll",
+                (lastSync == 0) ? null : (now - lastSync) / 1000.0);
+        w.gauge("banbridge_ban_cursor_timestamp_seconds", "updatedAt of the newest ban change applied (sync cursor)",
+                cursorEpochSeconds(banCache.getSinceCursor()));
+
+        w.gauge("banbridge_stats_tracked_players", "Players with counters in the stats accumulator",
+                stats.trackedPlayers());
+        w.gauge("banbridge_stats_pending_chunks", "Stats chunks queued or in flight, not yet acknowledged",
+                statsUploader.pendingChunks());
+        if (metricsBacklog != null) {
+            w.gauge("banbridge_metrics_backlog_points", "Metric points buffered for backfill", metricsBacklog.size());
+            w.counter("banbridge_metrics_backlog_dropped", "Metric samples dropped from a full backlog",
+                    metricsBacklog.dropped());
+        }
+
+        w.counter("banbridge_ticks", "Server ticks since start", tickRecorder.totalTicks());
+        w.counter("banbridge_slow_ticks", "Ticks longer than 50 ms since start", tickRecorder.totalSlowTicks());
+
+        ServerMetricsRequest m = lastMetrics;
+        if (m != null) {
+            // Averages/percentiles of the last push window (sync.metricsSeconds)
+            w.gauge("banbridge_tps", "TPS", m.tps());
+            w.gauge("banbridge_players_online", "Players online", m.playersOnline());
+            w.gauge("banbridge_cpu_load", "Host CPU load (0..1), push window average", m.cpuLoad());
+            w.gauge("banbridge_ram_used_bytes", "JVM heap used", mbToBytes(m.ramUsedMb()));
+            w.gauge("banbridge_tick_p50_seconds", "Tick duration p50, last push window", msToSeconds(m.tickP50Ms()));
+            w.gauge("banbridge_tick_p95_seconds", "Tick duration p95, last push window", msToSeconds(m.tickP95Ms()));
+            w.gauge("banbridge_tick_p99_seconds", "Tick duration p99, last push window", msToSeconds(m.tickP99Ms()));
+            w.gauge("banbridge_tick_max_seconds", "Longest tick, last push window", msToSeconds(m.tickMaxMs()));
+            w.gauge("banbridge_network_receive_kbps", "Received kbit/s, push window average", m.rxKbps());
+            w.gauge("banbridge_network_transmit_kbps", "Transmitted kbit/s, push window average", m.txKbps());
+            w.gauge("banbridge_disk_read_kbytes_per_second", "Process disk reads, push window average",
+                    m.diskReadKBps());
+            w.gauge("banbridge_disk_write_kbytes_per_second", "Process disk writes, push window average",
+                    m.diskWriteKBps());
+        }
+
+        LinuxBandwidthMeter nic = metricsSampler.collector(LinuxBandwidthMeter.class);
+        if (nic != null) renderInterfaceCounters(w, nic.interfaces());
+
+        List<BackendMetrics.OpSnapshot> ops = backendClient.metrics().snapshot();
+        if (ops.isEmpty()) return;
+
+        w.family("banbridge_backend_requests", OpenMetricsWriter.Type.COUNTER, "Completed backend requests (incl. retries)");
+        for (BackendMetrics.OpSnapshot op : ops) w.sample("banbridge_backend_requests_total", op.requests(), "op", op.op());
+        w.family("banbridge_backend_request_failures", OpenMetricsWriter.Type.COUNTER, "Backend requests that failed after all attempts");
+        for (BackendMetrics.OpSnapshot op : ops) w.sample("banbridge_backend_request_failures_total", op.failures(), "op", op.op());
+        w.family("banbridge_backend_retries", OpenMetricsWriter.Type.COUNTER, "Backend request retries");
+        for (BackendMetrics.OpSnapshot op : ops) w.sample("banbridge_backend_retries_total", op.retries(), "op", op.op());
+        w.family("banbridge_backend_responses", OpenMetricsWriter.Type.COUNTER, "Backend HTTP attempts by status (-1 = no response)");
+        for (BackendMetrics.OpSnapshot op : ops) {
+            op.statusCodes().forEach((code, n) ->
+                    w.sample("banbridge_backend_responses_total", n, "op", op.op(), "code", code.toString()));
+        }
+        w.family("banbridge_backend_sent_bytes", OpenMetricsWriter.Type.COUNTER, "Request body bytes sent");
+        for (BackendMetrics.OpSnapshot op : ops) w.sample("banbridge_backend_sent_bytes_total", op.bytesOut(), "op", op.op());
+        w.family("banbridge_backend_received_bytes", OpenMetricsWriter.Type.COUNTER, "Response body bytes received");
+        for (BackendMetrics.OpSnapshot op : ops) w.sample("banbridge_backend_received_bytes_total", op.bytesIn(), "op", op.op());
+
+        w.family("banbridge_backend_request_latency_seconds", OpenMetricsWriter.Type.GAUGE,
+                "Backend request latency incl. retries over the last minute");
+        for (BackendMetrics.OpSnapshot op : ops) {
+            WindowedHistogram.Snapshot h = op.request1m();
+            if (h.count() == 0) continue;
+            w.sample("banbridge_backend_request_latency_seconds", h.percentile(0.50) / 1e6, "op", op.op(), "quantile", "0.5");
+            w.sample("banbridge_backend_request_latency_seconds", h.percentile(0.99) / 1e6, "op", op.op(), "quantile", "0.99");
+            w.sample("banbridge_backend_request_latency_seconds", h.max() / 1e6, "op", op.op(), "quantile", "1");
+        }
+    }
+
+    /**
+     * Cumulative /proc/net/dev counters per interface (metrics.networkScope: host on Linux), as of the last
+     * 1 Hz sample.
+     */
+    private static void renderInterfaceCounters(OpenMetricsWriter w, List<LinuxBandwidthMeter.InterfaceCounters> ifs) {
+        if (ifs.isEmpty()) return;
+
+        List<Map.Entry<String, ToLongFunction<LinuxBandwidthMeter.InterfaceCounters>>> counters = List.of(
+                Map.entry("receive_bytes", LinuxBandwidthMeter.InterfaceCounters::rxBytes),
+                Map.entry("receive_packets", LinuxBandwidthMeter.InterfaceCounters::rxPackets),
+                Map.entry("receive_errors", LinuxBandwidthMeter.InterfaceCounters::rxErrs),
+                Map.entry("receive_drops", LinuxBandwidthMeter.InterfaceCounters::rxDrop),
+                Map.entry("transmit_bytes", LinuxBandwidthMeter.InterfaceCounters::txBytes),
+                Map.entry("transmit_packets", LinuxBandwidthMeter.InterfaceCounters::txPackets),
+                Map.entry("transmit_errors", LinuxBandwidthMeter.InterfaceCounters::txErrs),
+                Map.entry("transmit_drops", LinuxBandwidthMeter.InterfaceCounters::txDrop)
+        );
+        for (Map.Entry<String, ToLongFunction<LinuxBandwidthMeter.InterfaceCounters>> c : counters) {
+            String name = "banbridge_network_" + c.getKey();
+            w.family(name, OpenMetricsWriter.Type.COUNTER, "Host interface " + c.getKey().replace('_', ' ') + " (/proc/net/dev)");
+            for (LinuxBandwidthMeter.InterfaceCounters nif : ifs) {
+                w.sample(name + "_total", c.getValue().applyAsLong(nif), "iface", nif.name());
+            }
+        }
+    }
+
+    private static Double cursorEpochSeconds(String cursor) {
+        try {
+            return (cursor == null) ? null : Instant.parse(cursor).toEpochMilli() / 1000.0;
+        } catch (Exception e) {
             return null;
         }
     }
 
+    private static Double msToSeconds(Double ms) {
+        return (ms == null) ? null : ms / 1000.0;
+    }
+
+    private static Long mbToBytes(Integer mb) {
+        return (mb == null) ? null : mb * 1024L * 1024L;
+    }
+
+    // ----------------------------
+    // /banbridge command
+    // ----------------------------
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!"banbridge".equalsIgnoreCase(command.getName())) return false;
+
+        if (args.length >= 1 && "stats".equalsIgnoreCase(args[0])) {
+            sendBackendStats(sender);
+            return true;
+        }
+
+        sender.sendMessage(PREFIX + INFO + "Usage: " + ACCENT + "/banbridge stats");
+        return true;
+    }
+
+    /**
+     * Per backend op: request latency (incl. retries) and single-attempt latency as p50/p99/max in ms over
+     * the last 1m and 5m, plus totals since start.
+     */
+    private void sendBackendStats(CommandSender sender) {
+        if (backendClient == null) {
+            sender.sendMessage(PREFIX + WARN + "Not initialized.");
+            return;
+        }
+
+        List<BackendMetrics.OpSnapshot> ops = backendClient.metrics().snapshot();
+        sender.sendMessage(PREFIX + INFO + "Backend calls " + DIM + "(p50/p99/max ms; request incl. retries | single attempt)");
+        if (ops.isEmpty()) {
+            sender.sendMessage(PREFIX + INFO + "No backend calls yet.");
+            return;
+        }
+
+        for (BackendMetrics.OpSnapshot op : ops) {
+            sender.sendMessage(PREFIX + ACCENT + op.op()
+                    + INFO + " 1m " + latencyTriple(op.request1m()) + INFO + " | " + latencyTriple(op.attempt1m())
+                    + INFO + "  5m " + latencyTriple(op.request5m()) + INFO + " | " + latencyTriple(op.attempt5m()));
+            sender.sendMessage(PREFIX + DIM + "  "
+                    + INFO + "req=" + ACCENT + op.requests()
+                    + INFO + " fail=" + (op.failures() > 0 ? ERR : ACCENT) + op.failures()
+                    + INFO + " attempts=" + ACCENT + op.attempts()
+                    + INFO + " retries=" + (op.retries() > 0 ? WARN : ACCENT) + op.retries()
+                    + INFO + " out=" + ACCENT + humanBytes(op.bytesOut())
+                    + INFO + " in=" + ACCENT + humanBytes(op.bytesIn())
+                    + INFO + " codes=" + ACCENT + statusCodes(op.statusCodes()));
+        }
+    }
+
+    private static String latencyTriple(WindowedHistogram.Snapshot h) {
+        if (h.count() == 0) return DIM + "-";
+        return ACCENT + microsToMs(h.percentile(0.50)) + DIM + "/" + ACCENT + microsToMs(h.percentile(0.99))
+                + DIM + "/" + ACCENT + microsToMs(h.max()) + DIM + " (n=" + h.count() + ")";
+    }
+
+    private static String microsToMs(long micros) {
+        return (micros < 10_000L)
+                ? String.format(Locale.ROOT, "%.1f", micros / 1000.0)
+                : String.valueOf(micros / 1000L);
+    }
+
+    private static String statusCodes(Map<Integer, Long> codes) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Integer, Long> e : codes.entrySet()) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(e.getKey() < 0 ? "io" : String.valueOf(e.getKey())).append('×').append(e.getValue());
+        }
+        return sb.length() == 0 ? "-" : sb.toString();
+    }
+
+    private static String humanBytes(long bytes) {
+        if (bytes < 1024L) return bytes + "B";
+        if (bytes < 1024L * 1024L) return String.format(Locale.ROOT, "%.1fKiB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1fMiB", bytes / (1024.0 * 1024.0));
+    }
+
     // ----------------------------
     // Helpers
     // ----------------------------
@@ -814,8 +1608,8 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         return (int) mb;
     }
 
-    private static Double sanitizeCpuLoad(double v) {
-        if (Double.isNaN(v) || Double.isInfinite(v)) return null;
+    private static Double sanitizeCpuLoad(Double v) {
+        if (v == null || Double.isNaN(v) || Double.isInfinite(v)) return null;
         if (v < 0.0) return null;
         return Math.min(v, 1.2);
     }
@@ -835,19 +1629,14 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         return Math.round(clamped * 100.0) / 100.0;
     }
 
-    private static boolean isLinux() {
-        String os = System.getProperty("os.name", "");
-        return os.toLowerCase(Locale.ROOT).contains("linux");
-    }
-
     private static int clampInt(int v, int min, int max) {
         return Math.max(min, Math.min(max, v));
     }
 
-    private static String safeInline(String s) {
-        if (s == null) return "n/a";
-        String t = s.replace("\n", " ").replace("\r", " ").trim();
-        return t.isEmpty() ? "n/a" : t;
+    private static String trimToNull(Object o) {
+        if (o == null) return null;
+        String t = String.valueOf(o).trim();
+        return t.isEmpty() ? null : t;
     }
 
     private static String normalizeCommandType(String type) {
@@ -855,25 +1644,16 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         return type.trim().toUpperCase(Locale.ROOT);
     }
 
-    private static String clipPayload(String payload) {
-        if (payload == null) return "n/a";
-        String flat = payload.replace("\n", " ").replace("\r", " ").trim();
-        if (flat.isEmpty()) return "n/a";
-        if (flat.length() <= 240) return flat;
-        return flat.substring(0, 240) + "...";
-    }
-
-    private String readTrimmedText(JsonNode node, String fieldName) {
-        if (node == null || fieldName == null) return null;
-        JsonNode value = node.get(fieldName);
-        if (value == null || value.isNull()) return null;
-        if (!value.isTextual() && !value.isNumber() && !value.isBoolean()) return null;
-
-        String text = value.asText();
-        if (text == null) return null;
-
-        String trimmed = text.trim();
-        return trimmed.isEmpty() ? null : trimmed;
+    /**
+     * One roster scan; use instead of repeated findOnlineByXuid() calls when resolving several XUIDs.
+     */
+    private Map<String, Player> onlinePlayersByXuid() {
+        Map<String, Player> byXuid = new HashMap<>();
+        for (Player p : getServer().getOnlinePlayers().values()) {
+            String px = safeXuid(p);
+            if (px != null) byXuid.put(px, p);
+        }
+        return byXuid;
     }
 
     private Player findOnlineByXuid(String xuid) {
@@ -898,16 +1678,27 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         player.sendMessage(message);
     }
 
-    private int broadcastToAllPlayers(String message) {
-        if (message == null || message.trim().isEmpty()) return 0;
-
-        int count = 0;
-        for (Player player : getServer().getOnlinePlayers().values()) {
-            if (player == null) continue;
-            player.sendMessage(message);
-            count++;
+    /**
+     * Sends the message to every online player, one player per executor step. Report.steps() is the
+     * number of recipients.
+     */
+    private CompletableFuture<TickBudgetExecutor.Report> broadcastToAllPlayers(String jobName, String message) {
+        List<Player> recipients = new ArrayList<>(getServer().getOnlinePlayers().values());
+        recipients.removeIf(p -> p == null);
+        if (message == null || message.trim().isEmpty() || recipients.isEmpty()) {
+            return CompletableFuture.completedFuture(new TickBudgetExecutor.Report(jobName, 0, 0, 0L, 0L));
         }
-        return count;
+
+        int[] next = {0};
+        return tickExecutor.submit(jobName, () -> {
+            Player player = recipients.get(next[0]++);
+            if (player.isOnline()) player.sendMessage(message);
+            return next[0] < recipients.size();
+        });
+    }
+
+    private static String maxTickMs(TickBudgetExecutor.Report report) {
+        return String.format(Locale.ROOT, "%.2f", report.maxTickMillis());
     }
 
     private String safeXuid(Player player) {
@@ -1000,20 +1791,50 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         return null;
     }
 
-    private void logInfo(String area, String msg) {
-        getLogger().info(PREFIX + INFO + "[" + ACCENT + area + INFO + "] " + INFO + msg);
+    // Logging goes through the async pipeline: callers pass a constant message plus key/value fields,
+    // colours are applied on the log thread by formatLogEvent().
+
+    private void logInfo(String area, String msg, Object... fields) {
+        log.info(area, msg, fields);
+    }
+
+    private void logOk(String area, String msg, Object... fields) {
+        log.success(area, msg, fields);
     }
 
-    private void logOk(String area, String msg) {
-        getLogger().info(PREFIX + OK + "[" + ACCENT + area + OK + "] " + OK + msg);
+    private void logWarn(String area, String msg, Object... fields) {
+        log.warn(area, msg, fields);
     }
 
-    private void logWarn(String area, String msg) {
-        getLogger().warning(PREFIX + WARN + "[" + ACCENT + area + WARN + "] " + WARN + msg);
+    private void logErr(String area, String msg, Object... fields) {
+        log.error(area, msg, fields);
     }
 
-    private void logErr(String area, String msg) {
-        getLogger().warning(PREFIX + ERR + "[" + ACCENT + area + ERR + "] " + ERR + msg);
+    /**
+     * Warning that must never be rate limited (one line per ban, kept for auditing).
+     */
+    private void logAudit(String area, String msg, Object... fields) {
+        log.logKeyed(LogLevel.WARN, null, area, msg, fields);
+    }
+
+    private static String formatLogEvent(LogEvent e) {
+        String tone = switch (e.level()) {
+            case SUCCESS -> OK;
+            case WARN -> WARN;
+            case ERROR -> ERR;
+            default -> INFO;
+        };
+
+        StringBuilder sb = new StringBuilder(160)
+                .append(PREFIX).append(tone)
+                .append('[').append(ACCENT).append(e.area()).append(tone).append("] ")
+                .append(e.message());
+        for (int i = 0; i < e.fieldCount(); i++) {
+            sb.append(i == 0 ? " " + DIM + "→ " + tone : ", ")
+                    .append(e.fieldKey(i)).append('=')
+                    .append(ACCENT).append(LogFormatter.inline(e.fieldValue(i))).append(tone);
+        }
+        return sb.toString();
     }
 
     @SuppressWarnings("unused")
@@ -1037,21 +1858,28 @@ public final class BanBridgePlugin extends PluginBase implements Listener {
         );
 
         backendClient.reportBanEnforcedAsync(req, ok -> {
-            if (!ok) logWarn("BanReport", "Failed to report enforced ban to backend.");
+            if (!ok) logWarn("BanReport", "Failed to report enforced ban to backend");
         });
     }
 
     private record CommandExecutionOutcome(
             boolean acknowledge,
             boolean shutdownAfterAck,
-            String logMessage
+            String logMessage,
+            Map<String, String> targetOutcomes,  // nullable; xuid -> outcome (bulk commands only)
+            CompletableFuture<?> completion      // nullable; work still running on the tick executor
     ) {
         private static CommandExecutionOutcome ack(String logMessage) {
-            return new CommandExecutionOutcome(true, false, logMessage);
+            return new CommandExecutionOutcome(true, false, logMessage, null, null);
         }
 
         private static CommandExecutionOutcome ackShutdown(String logMessage) {
-            return new CommandExecutionOutcome(true, true, logMessage);
+            return new CommandExecutionOutcome(true, true, logMessage, null, null);
+        }
+
+        private static CommandExecutionOutcome ackWhenDone(String logMessage, Map<String, String> targetOutcomes,
+                                                           CompletableFuture<?> completion) {
+            return new CommandExecutionOutcome(true, false, logMessage, targetOutcomes, completion);
         }
     }
 }
\ No newline at end of file
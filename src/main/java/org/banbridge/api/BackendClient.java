@@ -1,6 +1,10 @@
 package org.banbridge.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.banbridge.log.BridgeLog;
+import org.banbridge.log.LogLevel;
+import org.banbridge.metrics.BackendMetrics;
 
 import java.io.IOException;
 import java.net.ConnectException;
@@ -12,10 +16,13 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public final class BackendClient {
@@ -32,12 +39,25 @@ public final class BackendClient {
     private final HttpClient http;
     private final ObjectMapper om;
 
+    /**
+     * Response readers, one per response type (ObjectReader is immutable and thread-safe).
+     */
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
     private final int maxAttempts;
     private final long baseBackoffMillis;
     private final long maxBackoffMillis;
 
     private final Random jitter = new Random();
 
+    /**
+     * Failure logging; keyed per op so an outage produces a few lines per op plus suppression summaries.
+     * Nullable (no logging).
+     */
+    private final BridgeLog log;
+
+    private final BackendMetrics metrics = new BackendMetrics();
+
     public BackendClient(
             String baseUrl,
             String serverKey,
@@ -45,7 +65,8 @@ public final class BackendClient {
             Duration connectTimeout,
             int maxAttempts,
             long baseBackoffMillis,
-            long maxBackoffMillis
+            long maxBackoffMillis,
+            BridgeLog log
     ) {
         String normalized = (baseUrl == null) ? "" : baseUrl.trim();
         this.baseUrl = trimTrailingSlash(normalized);
@@ -62,10 +83,18 @@ public final class BackendClient {
                 .build();
 
         this.om = new ObjectMapper();
+        this.log = log;
     }
 
     public BackendClient(String baseUrl, String serverKey, String serverToken, Duration connectTimeout) {
-        this(baseUrl, serverKey, serverToken, connectTimeout, 4, 250, 5_000);
+        this(baseUrl, serverKey, serverToken, connectTimeout, 4, 250, 5_000, null);
+    }
+
+    /**
+     * Per-op latency histograms and counters for every call made through this client.
+     */
+    public BackendMetrics metrics() {
+        return metrics;
     }
 
     // ----------------------------
@@ -129,6 +158,10 @@ public final class BackendClient {
         postJsonAsyncWithStatus("/api/server/metrics", metrics, "metrics", callback);
     }
 
+    public void postMetricsBatchAsync(MetricsBatchRequest batch, Consumer<PostResult> callback) {
+        postJsonAsyncWithStatus("/api/server/metrics/batch", batch, "metricsBatch", callback);
+    }
+
     public void pollCommandsAsync(String sinceId, Consumer<Optional<CommandsPollResponse>> callback) {
         String sid = (sinceId == null) ? "0" : sinceId;
         String url = baseUrl + "/api/server/commands/poll?serverKey=" + encodeQuery(serverKey) + "&sinceId=" + encodeQuery(sid);
@@ -149,9 +182,9 @@ public final class BackendClient {
         }
     }
 
-    public void ackCommandAsync(long id, Consumer<Boolean> callback) {
-        CommandAckRequest body = new CommandAckRequest(serverKey, id);
-        postJsonAsync("/api/server/commands/ack", body, "commandsAck", callback);
+    public void ackCommandsAsync(List<Long> ids, List<CommandAckRequest.Result> results, Consumer<Boolean> callback) {
+        CommandAckRequest.Batch body = new CommandAckRequest.Batch(serverKey, List.copyOf(ids), List.copyOf(results));
+        postJsonAsync("/api/server/commands/ack/batch", body, "commandsAckBatch", callback);
     }
 
     // ----------------------------
@@ -173,8 +206,7 @@ public final class BackendClient {
                     .thenApply(resp -> {
                         int sc = resp.statusCode();
                         if (sc / 100 != 2) {
-                            System.out.println("[BanBridge] op=" + op + " HTTP " + sc + " url=" + url
-                                    + " body=" + clip(resp.body(), 240));
+                            logHttpError(op, url, sc, resp.body());
                             return false;
                         }
                         return true;
@@ -205,8 +237,7 @@ public final class BackendClient {
                     .thenApply(resp -> {
                         int sc = resp.statusCode();
                         if (sc / 100 != 2) {
-                            System.out.println("[BanBridge] op=" + op + " HTTP " + sc + " url=" + url
-                                    + " body=" + clip(resp.body(), 240));
+                            logHttpError(op, url, sc, resp.body());
                         }
                         return new PostResult(sc / 100 == 2, sc);
                     })
@@ -228,7 +259,7 @@ public final class BackendClient {
                 throw new CompletionException(new IOException("HTTP " + sc + " body=" + clip(resp.body(), 240)));
             }
             try {
-                return om.readValue(resp.body(), clazz);
+                return readers.computeIfAbsent(clazz, om::readerFor).<T>readValue(resp.body());
             } catch (Exception e) {
                 throw new CompletionException(new IOException("JSON parse failed: " + e.getClass().getSimpleName()
                         + ": " + e.getMessage() + " body=" + clip(resp.body(), 240), e));
@@ -241,23 +272,39 @@ public final class BackendClient {
     // ----------------------------
 
     private CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest req, String op) {
-        return sendWithRetry0(req, op, 1);
+        BackendMetrics.OpStats stats = metrics.op(op);
+        long requestBytes = req.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        long start = System.nanoTime();
+
+        return sendWithRetry0(req, op, 1, stats, requestBytes).whenComplete((resp, err) -> {
+            boolean ok = err == null && resp.statusCode() / 100 == 2;
+            stats.recordRequest(System.nanoTime() - start, ok, err == null ? responseBytes(resp) : 0L);
+        });
     }
 
-    private CompletableFuture<HttpResponse<String>> sendWithRetry0(HttpRequest req, String op, int attempt) {
+    private CompletableFuture<HttpResponse<String>> sendWithRetry0(HttpRequest req, String op, int attempt,
+                                                                   BackendMetrics.OpStats stats, long requestBytes) {
+        long attemptStart = System.nanoTime();
         return http.sendAsync(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
                 .handle((resp, err) -> {
+                    stats.recordAttempt(System.nanoTime() - attemptStart, err == null ? resp.statusCode() : -1,
+                            requestBytes);
+
                     if (err == null) {
                         int sc = resp.statusCode();
 
                         if (sc == 401 || sc == 403) {
-                            System.out.println("[BanBridge] op=" + op + " HTTP " + sc + " (auth failed?) url=" + req.uri());
+                            if (log != null && log.isEnabled(LogLevel.WARN)) {
+                                log.logKeyed(LogLevel.WARN, "http:" + op, "Backend", "HTTP auth failed (check api.serverToken)",
+                                        "op", op, "status", sc, "url", req.uri().toString());
+                            }
                             return CompletableFuture.completedFuture(resp);
                         }
 
                         if (((sc >= 500 && sc <= 599) || sc == 429) && attempt < maxAttempts) {
+                            stats.recordRetry();
                             long delay = computeDelayMillis(attempt, sc == 429);
-                            return delayFuture(delay).thenCompose(v -> sendWithRetry0(req, op, attempt + 1));
+                            return delayFuture(delay).thenCompose(v -> sendWithRetry0(req, op, attempt + 1, stats, requestBytes));
                         }
 
                         return CompletableFuture.completedFuture(resp);
@@ -266,8 +313,9 @@ public final class BackendClient {
                     Throwable root = unwrap(err);
 
                     if (isRetryableNetworkError(root) && attempt < maxAttempts) {
+                        stats.recordRetry();
                         long delay = computeDelayMillis(attempt, false);
-                        return delayFuture(delay).thenCompose(v -> sendWithRetry0(req, op, attempt + 1));
+                        return delayFuture(delay).thenCompose(v -> sendWithRetry0(req, op, attempt + 1, stats, requestBytes));
                     }
 
                     CompletableFuture<HttpResponse<String>> failed = new CompletableFuture<>();
@@ -277,6 +325,15 @@ public final class BackendClient {
                 .thenCompose(f -> f);
     }
 
+    /**
+     * Response size from Content-Length, falling back to the decoded body length.
+     */
+    private static long responseBytes(HttpResponse<String> resp) {
+        if (resp == null) return 0L;
+        return resp.headers().firstValueAsLong("content-length")
+                .orElse(resp.body() == null ? 0L : resp.body().length());
+    }
+
     private boolean isRetryableNetworkError(Throwable t) {
         if (t == null) return false;
         if (t instanceof ConnectException) return true;
@@ -342,11 +399,18 @@ public final class BackendClient {
         return s.substring(0, max) + "...";
     }
 
-    private static void logFail(String op, String url, Throwable ex) {
+    private void logFail(String op, String url, Throwable ex) {
+        if (log == null || !log.isEnabled(LogLevel.WARN)) return;
         Throwable root = ex;
         if (root instanceof CompletionException ce && ce.getCause() != null) root = ce.getCause();
-        System.out.println("[BanBridge] op=" + op + " failed url=" + url
-                + " err=" + root.getClass().getSimpleName() + ": " + root.getMessage());
+        log.logKeyed(LogLevel.WARN, "http:" + op, "Backend", "Request failed",
+                "op", op, "url", url, "err", root.getClass().getSimpleName() + ": " + root.getMessage());
+    }
+
+    private void logHttpError(String op, String url, int status, String body) {
+        if (log == null || !log.isEnabled(LogLevel.WARN)) return;
+        log.logKeyed(LogLevel.WARN, "http:" + op, "Backend", "HTTP error",
+                "op", op, "status", status, "url", url, "body", clip(body, 240));
     }
 
     // ----------------------------
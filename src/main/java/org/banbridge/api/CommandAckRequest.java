@@ -1,6 +1,34 @@
 package org.banbridge.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backend contract:
+ * POST /api/server/commands/ack        Body: { "serverKey": "...", "id": 123 }
+ * POST /api/server/commands/ack/batch  Body: { "serverKey": "...", "ids": [123, 124, 125], "results": [ ... ] }
+ *
+ * "results" is optional and only carries commands that report per-target outcomes (bulk commands):
+ * { "id": 124, "targets": { "<xuid>": "EXECUTED" | "NOT_ONLINE" | "INVALID" } }
+ */
 public record CommandAckRequest(
         String serverKey,
         long id
-) {}
\ No newline at end of file
+) {
+    /**
+     * Batch form: acknowledges every listed command in one request.
+     */
+    public record Batch(
+            String serverKey,
+            List<Long> ids,
+            @JsonInclude(JsonInclude.Include.NON_EMPTY)
+            List<Result> results   // nullable
+    ) {}
+
+    public record Result(
+            long id,
+            Map<String, String> targets   // xuid -> outcome
+    ) {}
+}
@@ -2,6 +2,7 @@ package org.banbridge.api;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.List;
 
@@ -17,7 +18,7 @@ import java.util.List;
  *       "id": 123,
  *       "serverKey": "survival-1",
  *       "cmdType": "KICK",
- *       "payloadJson": "{\"xuid\":\"1234567890\",\"reason\":\"Test\"}",
+ *       "payload": { "xuid": "1234567890", "reason": "Test" },
  *       "createdAt": "2026-03-13T12:34:00Z"
  *     }
  *   ]
@@ -25,6 +26,8 @@ import java.util.List;
  *
  * Compatibility:
  * - The client also accepts legacy backend responses that send `type` instead of `cmdType`.
+ * - The payload may be sent as an embedded object ("payload") or, legacy, as a JSON string
+ *   ("payloadJson" or "payload"). Embedded objects are parsed once, together with the poll response.
  *
  * Supported command types on the client:
  * - SHUTDOWN
@@ -32,6 +35,8 @@ import java.util.List;
  * - KICK
  * - MESSAGE
  * - BROADCAST
+ * - KICK_BULK
+ * - MESSAGE_BULK
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public record CommandsPollResponse(
@@ -42,13 +47,13 @@ public record CommandsPollResponse(
     /**
      * A single backend-issued server command.
      *
-     * payloadJson by type:
+     * payload by type:
      *
      * SHUTDOWN:
-     * - payloadJson may be null/empty
+     * - payload may be null/empty
      *
      * REFRESH_BANS:
-     * - payloadJson may be null/empty
+     * - payload may be null/empty
      *
      * KICK:
      * {
@@ -66,14 +71,30 @@ public record CommandsPollResponse(
      * {
      *   "message": "message text"
      * }
+     *
+     * KICK_BULK / MESSAGE_BULK (per-target text overrides the shared "reason"/"message"):
+     * {
+     *   "reason": "shared kick reason",            // KICK_BULK
+     *   "message": "shared message text",          // MESSAGE_BULK
+     *   "xuids": ["xuid-1", "xuid-2"],             // optional, use shared text
+     *   "targets": [ { "xuid": "xuid-3", "reason": "...", "message": "..." } ]  // optional
+     * }
+     * Per-target outcomes are reported in the batch ACK "results".
      */
     @JsonIgnoreProperties(ignoreUnknown = true)
     public record ServerCommand(
             long id,
             String serverKey,
             @JsonAlias("type") String cmdType,
-            String payloadJson,
+            @JsonAlias("payloadJson") JsonNode payload,
             String createdAt
     ) {
+        /**
+         * Payload as text (the legacy string itself, or the embedded object serialized); for logging only.
+         */
+        public String payloadText() {
+            if (payload == null || payload.isNull()) return null;
+            return payload.isTextual() ? payload.textValue() : payload.toString();
+        }
     }
 }
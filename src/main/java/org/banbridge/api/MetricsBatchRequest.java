@@ -0,0 +1,58 @@
+package org.banbridge.api;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Backend contract:
+ * POST /api/server/metrics/batch
+ * Body: { "serverKey": "...", "points": [ ... ] }
+ *
+ * Timestamped metric points, oldest first. Used to post several push windows in one request
+ * (metrics.batch) and to backfill samples that could not be posted while the backend was unreachable.
+ *
+ * Rules (same as {@link ServerMetricsRequest}):
+ * - Unknown/unavailable values are null, never negative.
+ * - A point may aggregate several samples (resolutionSeconds > push interval, samples > 1) after local
+ *   downsampling: gauges are averaged, tickP95Ms/tickP99Ms/tickMaxMs/ramMaxMb/playersMax are the maximum,
+ *   ticksOver50Ms is the sum.
+ */
+public record MetricsBatchRequest(
+        String serverKey,
+        List<Point> points
+) {
+    public record Point(
+            String recordedAt,         // ISO-8601 start of the point
+            int resolutionSeconds,     // 0 = single sample, else bucket size (60, 300)
+            int samples,               // samples merged into this point (>= 1)
+            Integer ramUsedMb,
+            Integer ramMaxMb,
+            Double cpuLoad,
+            Double playersOnline,      // average over the bucket
+            Integer playersMax,
+            Double tps,
+            Double rxKbps,
+            Double txKbps,
+            Double diskReadKBps,
+            Double diskWriteKBps,
+            Double tickP50Ms,
+            Double tickP95Ms,
+            Double tickP99Ms,
+            Double tickMaxMs,
+            Long ticksOver50Ms
+    ) {
+        /**
+         * Single-sample point for a metrics push collected at epochMillis.
+         */
+        public static Point of(long epochMillis, ServerMetricsRequest m) {
+            return new Point(
+                    Instant.ofEpochMilli(epochMillis).toString(), 0, 1,
+                    m.ramUsedMb(), m.ramMaxMb(), m.cpuLoad(),
+                    (m.playersOnline() == null) ? null : m.playersOnline().doubleValue(),
+                    m.playersMax(), m.tps(),
+                    m.rxKbps(), m.txKbps(), m.diskReadKBps(), m.diskWriteKBps(),
+                    m.tickP50Ms(), m.tickP95Ms(), m.tickP99Ms(), m.tickMaxMs(), m.ticksOver50Ms()
+            );
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package org.banbridge.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
 /**
  * Backend contract:
  * POST /api/server/metrics
@@ -8,6 +13,14 @@ package org.banbridge.api;
  * - serverKey is required and must never be empty.
  * - Unknown/unavailable values must be null (NOT -1).
  * - Never send negative numbers.
+ * - banPropagation is omitted when no ban was traced in the last hour.
+ * - jvm is omitted when the JFR collector is disabled or has not delivered events yet.
+ * - stalls is omitted when no main-thread stall ended since the previous push.
+ * - cpuLoad, rxKbps/txKbps and diskRead/WriteKBps are averages of the samples in the push window;
+ *   samples carries min/avg/max for every collector metric (metrics without a valid sample are left out).
+ * - With metrics.batch, this endpoint is the latest-value feed (with each batch, or every
+ *   metrics.batch.liveSeconds) and the same samples also arrive as history points via
+ *   /api/server/metrics/batch; store history from the batch only. jvm and stalls cover the time since the previous post to this endpoint.
  */
 public record ServerMetricsRequest(
         String serverKey,       // required, never empty
@@ -17,6 +30,70 @@ public record ServerMetricsRequest(
         Integer playersOnline,  // >= 0 (0 if none)
         Integer playersMax,     // >= 0 or null
         Double tps,             // >= 0 (clamped); null if not measurable
-        Double rxKbps,          // >= 0; null if not measurable
-        Double txKbps           // >= 0; null if not measurable
-) {}
\ No newline at end of file
+        Double rxKbps,          // >= 0; null if not measurable (scope: metrics.networkScope)
+        Double txKbps,          // >= 0; null if not measurable
+        Double diskReadKBps,    // >= 0, this JVM's block-device reads (KB/s); null if not measurable (non-Linux)
+        Double diskWriteKBps,   // >= 0; null if not measurable
+        Double tickP50Ms,       // tick duration percentiles over the push window; null if no ticks recorded
+        Double tickP95Ms,
+        Double tickP99Ms,
+        Double tickMaxMs,
+        Long ticksOver50Ms,     // ticks longer than 50 ms in the push window; null if no ticks recorded
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Map<String, StageLatency> banPropagation, // stage -> latency (visible, apply, kick, effective, kickTotal)
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        JvmStats jvm,           // JFR metrics for the push window; omitted unless metrics.jfr.enabled
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        List<StallReport> stalls, // main-thread stalls that ended since the previous push
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        Map<String, MetricWindow> samples // collector metric -> min/avg/max of the ~1 Hz samples in the push window
+) {
+
+    /**
+     * Ban propagation latency of one stage over the last hour, in ms (clock-offset corrected).
+     */
+    public record StageLatency(
+            long count,
+            long p50Ms,
+            long p99Ms,
+            long maxMs
+    ) {}
+
+    /**
+     * JVM runtime metrics from JFR over one push window.
+     */
+    public record JvmStats(
+            long gcCount,
+            double gcPauseTotalMs,
+            double gcPauseMaxMs,
+            double allocMbPerSec,      // estimated from throttled allocation samples
+            long safepointCount,
+            double safepointTotalMs,
+            Double jvmCpu,             // 0..1 share of the machine; null if no sample
+            Double mainThreadCpu       // 0..1; null if no sample
+    ) {}
+
+    /**
+     * One main-thread stall seen by the watchdog.
+     * owners: sample count per plugin/package (most samples first);
+     * collapsed: the most frequent stacks as "root;...;leaf count" lines.
+     */
+    public record StallReport(
+            String startedAt,
+            long durationMs,
+            int samples,
+            String owner,
+            Map<String, Integer> owners,
+            List<String> collapsed
+    ) {}
+
+    /**
+     * Aggregate of one sampled metric over a push window.
+     */
+    public record MetricWindow(
+            int samples,
+            double min,
+            double avg,
+            double max
+    ) {}
+}
@@ -1,6 +1,9 @@
 package org.banbridge.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
+import java.util.Map;
 
 /**
  * Backend contract:
@@ -8,6 +11,10 @@ import java.util.List;
  * Body: { "players": [ ... ] }
  *
  * serverKey is provided via header X-Server-Key
+ *
+ * Per player, the fixed delta fields are always present. Any additional registered counters
+ * (blocksPlaced, chatMessages, ...) are sent in the sparse "counters" map, which only contains
+ * non-zero deltas and is omitted entirely when empty.
  */
 public record StatsBatchRequest(
         List<PlayerDelta> players
@@ -17,6 +24,12 @@ public record StatsBatchRequest(
             String name,
             long playtimeDeltaSeconds,
             long killsDelta,
-            long deathsDelta
-    ) {}
-}
\ No newline at end of file
+            long deathsDelta,
+            @JsonInclude(JsonInclude.Include.NON_EMPTY)
+            Map<String, Long> counters   // nullable; counter name -> delta
+    ) {
+        public PlayerDelta(String xuid, String name, long playtimeDeltaSeconds, long killsDelta, long deathsDelta) {
+            this(xuid, name, playtimeDeltaSeconds, killsDelta, deathsDelta, null);
+        }
+    }
+}
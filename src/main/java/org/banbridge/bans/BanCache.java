@@ -33,6 +33,10 @@ public final class BanCache {
         return sinceCursor;
     }
 
+    public int size() {
+        return activeByXuid.size();
+    }
+
     public Optional<BanEntry> findActiveBan(String xuid) {
         BanEntry e = activeByXuid.get(xuid);
         if (e == null) return Optional.empty();
@@ -0,0 +1,155 @@
+package org.banbridge.bans;
+
+import org.banbridge.api.ServerMetricsRequest;
+import org.banbridge.metrics.WindowedHistogram;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how long a new ban takes to become effective, stage by stage:
+ *
+ *   event    backend updatedAt (createdAt if missing)
+ *   fetched  ban-changes response received            stage "visible" = fetched - event
+ *   applied  applyChanges() done (login is blocked)   stage "apply"   = applied - fetched
+ *   kicked   online player kicked on the main thread  stage "kick"    = kicked - applied
+ *
+ * plus "effective" (event → applied) and "kickTotal" (event → kicked).
+ *
+ * Backend timestamps use the backend clock. Each fetch estimates the offset between the clocks from the
+ * response's serverTime, taken at the midpoint of the request (NTP-style), and local times are moved onto
+ * the backend clock before subtracting. Stages that need the offset are skipped until one is known.
+ * Residual negative values (offset error) are clamped to 0.
+ *
+ * Only bans that could have been missed by nothing but the previous poll are traced: the event must be
+ * after the previous poll was sent (backend clock). This leaves out catch-up polls (first poll after
+ * startup, after the backend was unreachable at startup, after a cursor reset), whose hours- or days-old
+ * entries would otherwise swamp the histograms.
+ *
+ * Latencies are kept in ms over a sliding window of one hour and reported with the metrics push.
+ */
+public final class BanPropagationTracker {
+
+    public static final String VISIBLE = "visible";
+    public static final String APPLY = "apply";
+    public static final String KICK = "kick";
+    public static final String EFFECTIVE = "effective";
+    public static final String KICK_TOTAL = "kickTotal";
+
+    private static final long SLOT_MILLIS = 5 * 60_000L;
+    private static final int SLOTS = 12;
+    private static final long WINDOW_MILLIS = SLOT_MILLIS * SLOTS;
+
+    private final Map<String, WindowedHistogram> stages = new LinkedHashMap<>();
+
+    /**
+     * backend clock - local clock, in ms; valid once hasOffset is set.
+     */
+    private volatile long offsetMillis;
+    private volatile boolean hasOffset;
+
+    /**
+     * Send time of the latest successful poll on the backend clock; -1 before the first one.
+     */
+    private volatile long lastSentServerMillis = -1L;
+
+    public BanPropagationTracker() {
+        for (String s : List.of(VISIBLE, APPLY, KICK, EFFECTIVE, KICK_TOTAL)) {
+            stages.put(s, new WindowedHistogram(SLOT_MILLIS, SLOTS));
+        }
+    }
+
+    /**
+     * Updates the clock offset from a ban-changes response.
+     *
+     * @param sentAtMillis     local time the request was sent
+     * @param receivedAtMillis local time the response arrived
+     * @param serverTime       response serverTime (ISO-8601), may be null/unparseable
+     * @return send time of the previous successful poll on the backend clock (pass to onApplied), or -1
+     */
+    public long onFetched(long sentAtMillis, long receivedAtMillis, String serverTime) {
+        Instant server = parse(serverTime);
+        if (server == null) return -1L;
+        long midpoint = sentAtMillis + (receivedAtMillis - sentAtMillis) / 2;
+        long offset = server.toEpochMilli() - midpoint;
+        offsetMillis = offset;
+        hasOffset = true;
+
+        long previous = lastSentServerMillis;
+        lastSentServerMillis = sentAtMillis + offset;
+        return previous;
+    }
+
+    /**
+     * Records the visible/apply/effective stages for bans that just became active and whose event is after
+     * previousSentServerMillis (from {@link #onFetched}); older ones are catch-up and not traced.
+     *
+     * @return the traced bans (pass their kicks to {@link #onKicked})
+     */
+    public List<BanEntry> onApplied(List<BanEntry> newlyBanned, long previousSentServerMillis,
+                                    long receivedAtMillis, long appliedAtMillis) {
+        if (newlyBanned == null || newlyBanned.isEmpty() || previousSentServerMillis < 0 || !hasOffset) {
+            return List.of();
+        }
+
+        long offset = offsetMillis;
+        List<BanEntry> traced = new ArrayList<>();
+        for (BanEntry b : newlyBanned) {
+            long event = eventMillis(b);
+            if (event < previousSentServerMillis) continue;
+            traced.add(b);
+            record(VISIBLE, receivedAtMillis + offset - event, 1);
+            record(EFFECTIVE, appliedAtMillis + offset - event, 1);
+        }
+        record(APPLY, appliedAtMillis - receivedAtMillis, traced.size());
+        return traced;
+    }
+
+    /**
+     * Records the kick stages for one online player removed because of a ban returned by onApplied.
+     */
+    public void onKicked(BanEntry ban, long appliedAtMillis, long kickedAtMillis) {
+        record(KICK, kickedAtMillis - appliedAtMillis, 1);
+        if (!hasOffset || ban == null) return;
+
+        long event = eventMillis(ban);
+        if (event >= 0) record(KICK_TOTAL, kickedAtMillis + offsetMillis - event, 1);
+    }
+
+    /**
+     * Stage → latency summary over the last hour; null if no ban was traced in that window.
+     */
+    public Map<String, ServerMetricsRequest.StageLatency> snapshot() {
+        Map<String, ServerMetricsRequest.StageLatency> out = new LinkedHashMap<>();
+        for (Map.Entry<String, WindowedHistogram> e : stages.entrySet()) {
+            WindowedHistogram.Snapshot s = e.getValue().snapshot(WINDOW_MILLIS);
+            if (s.count() == 0) continue;
+            out.put(e.getKey(), new ServerMetricsRequest.StageLatency(
+                    s.count(), s.percentile(0.50), s.percentile(0.99), s.max()));
+        }
+        return out.isEmpty() ? null : out;
+    }
+
+    private void record(String stage, long millis, int times) {
+        WindowedHistogram h = stages.get(stage);
+        long v = Math.max(0L, millis);
+        for (int i = 0; i < times; i++) h.record(v);
+    }
+
+    private static long eventMillis(BanEntry b) {
+        Instant t = (b.updatedAt() != null) ? b.updatedAt() : b.createdAt();
+        return (t == null) ? -1L : t.toEpochMilli();
+    }
+
+    private static Instant parse(String s) {
+        if (s == null || s.isBlank()) return null;
+        try {
+            return Instant.parse(s.trim());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
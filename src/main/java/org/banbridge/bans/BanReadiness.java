@@ -0,0 +1,129 @@
+package org.banbridge.bans;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup state of ban enforcement: LOADING (cache file being read off the main thread) → SYNCING (cache
+ * loaded, first ban changes poll pending) → READY (first poll applied, or the sync timeout expired with the
+ * loaded cache, which is then marked stale).
+ *
+ * Logins before READY follow {@link LoginPolicy}. Timestamps are relative to onEnable, so the plugin can
+ * report both startup time and time-to-ready.
+ */
+public final class BanReadiness {
+
+    public enum State {
+        LOADING, SYNCING, READY
+    }
+
+    /**
+     * What onLogin does before READY.
+     */
+    public enum LoginPolicy {
+        /**
+         * Block the login (main thread) while the cache is still loading, up to holdMillis in total across all
+         * logins; then check the loaded cache, or deny if it is not loaded.
+         */
+        HOLD,
+        /**
+         * Fail closed: reject the login.
+         */
+        DENY,
+        /**
+         * Fail open: admit after checking whatever is loaded; online players are re-checked once READY.
+         */
+        ALLOW;
+
+        public static LoginPolicy parse(String s, LoginPolicy def) {
+            if (s == null || s.isBlank()) return def;
+            try {
+                return valueOf(s.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return def;
+            }
+        }
+    }
+
+    private final long startNanos;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile boolean ready;
+
+    private volatile State state = State.LOADING;
+    private volatile long loadedNanos;
+    private volatile long readyNanos;
+    private volatile boolean stale;
+
+    /**
+     * @param startNanos System.nanoTime() at the start of onEnable
+     */
+    public BanReadiness(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isLoaded() {
+        return loaded.getCount() == 0;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * True if READY was reached by the sync timeout rather than a successful poll.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public synchronized void markLoaded() {
+        if (isLoaded()) return;
+        loadedNanos = System.nanoTime();
+        if (state == State.LOADING) state = State.SYNCING;
+        loaded.countDown();
+    }
+
+    /**
+     * @param stale true when giving up on the first sync
+     * @return true for the call that made the state READY
+     */
+    public synchronized boolean markReady(boolean stale) {
+        if (isReady() || !isLoaded()) return false;
+        this.stale = stale;
+        readyNanos = System.nanoTime();
+        state = State.READY;
+        ready = true;
+        return true;
+    }
+
+    /**
+     * Blocks until the cache is loaded or the timeout expires.
+     */
+    public boolean awaitLoaded(long timeoutMillis) {
+        try {
+            return loaded.await(Math.max(0L, timeoutMillis), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return isLoaded();
+        }
+    }
+
+    /**
+     * onEnable start → cache loaded, or null while loading.
+     */
+    public Long loadMillis() {
+        return isLoaded() ? (loadedNanos - startNanos) / 1_000_000L : null;
+    }
+
+    /**
+     * onEnable start → READY, or null before.
+     */
+    public Long readyMillis() {
+        return isReady() ? (readyNanos - startNanos) / 1_000_000L : null;
+    }
+}
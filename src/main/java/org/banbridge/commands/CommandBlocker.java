@@ -0,0 +1,156 @@
+package org.banbridge.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Precompiled, case-insensitive matcher for blocked commands (e.g. ban, ban-ip, pardon and their aliases).
+ *
+ * Matching scans the raw command text in place; it never trims, lower-cases or copies it:
+ * - leading whitespace and an optional '/' are skipped
+ * - the first token is walked through an ASCII trie (one table lookup per character)
+ * - a namespaced form ("minecraft:ban", "/nukkit:pardon") matches the part after the last ':' of the token
+ * - the match must end at the end of the text or at whitespace, so "/banana" is not "/ban"
+ *
+ * Non-matching commands usually fail on their first character; unlike the previous trim() + toLowerCase()
+ * check, no intermediate Strings are created.
+ *
+ * Immutable after construction; safe to share across threads.
+ */
+public final class CommandBlocker {
+
+    /**
+     * A blocked command and the text sent to a player who tries it. The command name is normalized
+     * (lower case, no '/'); invalid names (empty, whitespace, non-ASCII) are rejected.
+     */
+    public record Rule(String command, List<String> aliases, String response) {
+        public Rule {
+            String normalized = normalize(command);
+            if (normalized == null) throw new IllegalArgumentException("Invalid command name: " + command);
+            command = normalized;
+            aliases = (aliases == null) ? List.of() : List.copyOf(aliases);
+        }
+    }
+
+    private static final int ALPHABET = 128;
+
+    private final Rule[] rules;
+
+    /**
+     * next[node * ALPHABET + c] = child node, 0 = none (node 0 is the root, never a child).
+     */
+    private final int[] next;
+
+    /**
+     * Rule index for nodes that complete a command name, -1 otherwise.
+     */
+    private final int[] terminal;
+
+    public CommandBlocker(List<Rule> rules) {
+        this.rules = rules.toArray(new Rule[0]);
+
+        List<int[]> table = new ArrayList<>();
+        List<Integer> term = new ArrayList<>();
+        table.add(new int[ALPHABET]);
+        term.add(-1);
+
+        for (int r = 0; r < this.rules.length; r++) {
+            Rule rule = this.rules[r];
+            insert(table, term, rule.command(), r);
+            for (String alias : rule.aliases()) insert(table, term, alias, r);
+        }
+
+        this.next = new int[table.size() * ALPHABET];
+        this.terminal = new int[term.size()];
+        for (int n = 0; n < table.size(); n++) {
+            System.arraycopy(table.get(n), 0, next, n * ALPHABET, ALPHABET);
+            terminal[n] = term.get(n);
+        }
+    }
+
+    public static CommandBlocker empty() {
+        return new CommandBlocker(List.of());
+    }
+
+    public List<String> commands() {
+        List<String> names = new ArrayList<>(rules.length);
+        for (Rule r : rules) names.add(r.command());
+        return names;
+    }
+
+    /**
+     * @return the matching rule, or null if the command is not blocked
+     */
+    public Rule match(String command) {
+        if (command == null || rules.length == 0) return null;
+
+        int len = command.length();
+        int i = 0;
+        while (i < len && command.charAt(i) <= ' ') i++;
+        if (i < len && command.charAt(i) == '/') i++;
+
+        int r = matchAt(command, i, len);
+        if (r >= 0) return rules[r];
+
+        // Namespaced form: retry after the last ':' of the first token.
+        int colon = -1;
+        for (int j = i; j < len; j++) {
+            char c = command.charAt(j);
+            if (c <= ' ') break;
+            if (c == ':') colon = j;
+        }
+        if (colon < 0) return null;
+
+        r = matchAt(command, colon + 1, len);
+        return r >= 0 ? rules[r] : null;
+    }
+
+    private int matchAt(String s, int start, int len) {
+        int node = 0;
+        for (int i = start; i < len; i++) {
+            char c = s.charAt(i);
+            if (c <= ' ') return terminal[node];
+            if (c >= ALPHABET) return -1;
+            if (c >= 'A' && c <= 'Z') c += ('a' - 'A');
+
+            node = next[node * ALPHABET + c];
+            if (node == 0) return -1;
+        }
+        return terminal[node];
+    }
+
+    private static void insert(List<int[]> table, List<Integer> term, String name, int ruleIndex) {
+        String key = normalize(name);
+        if (key == null) return;
+
+        int node = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            int child = table.get(node)[c];
+            if (child == 0) {
+                child = table.size();
+                table.add(new int[ALPHABET]);
+                term.add(-1);
+                table.get(node)[c] = child;
+            }
+            node = child;
+        }
+        if (term.get(node) < 0) term.set(node, ruleIndex);
+    }
+
+    /**
+     * Lower-cased name without '/', or null if it is empty or not printable ASCII without whitespace.
+     */
+    static String normalize(String name) {
+        if (name == null) return null;
+        String t = name.trim();
+        if (t.startsWith("/")) t = t.substring(1);
+        if (t.isEmpty()) return null;
+        for (int i = 0; i < t.length(); i++) {
+            char c = t.charAt(i);
+            if (c <= ' ' || c >= ALPHABET) return null;
+        }
+        return t.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,124 @@
+package org.banbridge.commands;
+
+import cn.nukkit.utils.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Persistent state for backend command processing.
+ *
+ * - cursor: highest command ID acknowledged by the backend; used as sinceId for polling, so a restart
+ *   only receives new commands.
+ * - recent IDs: bounded window of command IDs that were executed locally. A command that is delivered
+ *   again (e.g. its ACK was lost) is acknowledged without being executed a second time.
+ *
+ * Stored next to the ban cache and written with the same temp-file + atomic-move approach.
+ */
+public final class CommandJournal {
+
+    private final Path file;
+    private final Logger log;
+    private final int windowSize;
+    private final ObjectMapper om = new ObjectMapper();
+    private final Object ioLock = new Object();
+
+    private long cursor;
+    private final ArrayDeque<Long> recentOrder = new ArrayDeque<>();
+    private final Set<Long> recentIds = new HashSet<>();
+
+    public CommandJournal(Path file, Logger log, int windowSize) {
+        this.file = file;
+        this.log = log;
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    public synchronized long cursor() {
+        return cursor;
+    }
+
+    public synchronized boolean wasExecuted(long id) {
+        return recentIds.contains(id);
+    }
+
+    public synchronized void recordExecuted(long id) {
+        if (!recentIds.add(id)) return;
+        recentOrder.addLast(id);
+        while (recentOrder.size() > windowSize) {
+            recentIds.remove(recentOrder.removeFirst());
+        }
+    }
+
+    public synchronized void advanceCursor(long id) {
+        if (id > cursor) cursor = id;
+    }
+
+    public synchronized void loadFromDisk() {
+        try {
+            Files.createDirectories(file.getParent());
+            if (!Files.exists(file)) return;
+
+            JournalFile jf = om.readValue(Files.readAllBytes(file), JournalFile.class);
+            this.cursor = Math.max(0L, jf.cursor);
+
+            recentOrder.clear();
+            recentIds.clear();
+            if (jf.recentIds != null) {
+                for (Long id : jf.recentIds) {
+                    if (id != null) recordExecuted(id);
+                }
+            }
+            log.info("Loaded command journal: cursor=" + cursor + ", recent=" + recentIds.size());
+        } catch (Exception e) {
+            log.warning("Failed to load command journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Snapshot under the state lock, write under a separate I/O lock so callers on other threads
+     * (cursor reads, duplicate checks) never wait for the disk.
+     */
+    public void saveToDiskAtomic() {
+        synchronized (ioLock) {
+            saveToDiskAtomic0();
+        }
+    }
+
+    private void saveToDiskAtomic0() {
+        JournalFile jf = new JournalFile();
+        synchronized (this) {
+            jf.cursor = cursor;
+            jf.recentIds = new ArrayList<>(recentOrder);
+        }
+
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName().toString() + ".tmp");
+
+            Files.write(tmp, om.writeValueAsBytes(jf));
+
+            try {
+                Files.move(tmp, file,
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                        java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicNotSupported) {
+                Files.move(tmp, file,
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Exception e) {
+            log.warning("Failed to save command journal: " + e.getMessage());
+        }
+    }
+
+    public static final class JournalFile {
+        public long cursor;
+        public List<Long> recentIds;
+    }
+}
@@ -0,0 +1,138 @@
+package org.banbridge.commands;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed payloads for backend commands, decoded with one cached {@link ObjectReader} per payload type.
+ *
+ * A command's payload arrives either as an embedded JSON object (already parsed with the poll response,
+ * decoded here straight from the tree) or as a legacy JSON string (parsed once, directly into the record).
+ *
+ * Lenient like the old field-by-field handling:
+ * - unknown fields are ignored; numbers/booleans are accepted as text
+ * - text is trimmed, blank text becomes null
+ * - blank/null XUIDs in "xuids" and null entries in "targets" are dropped
+ */
+public final class CommandPayloads {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Kick(String xuid, String reason) {
+        public Kick {
+            xuid = trimToNull(xuid);
+            reason = trimToNull(reason);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Message(String xuid, String message) {
+        public Message {
+            xuid = trimToNull(xuid);
+            message = trimToNull(message);
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Broadcast(String message) {
+        public Broadcast {
+            message = trimToNull(message);
+        }
+    }
+
+    /**
+     * KICK_BULK / MESSAGE_BULK. reason/message are the shared texts; targets may override them per XUID.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Bulk(String reason, String message, List<String> xuids, List<Target> targets) {
+        public Bulk {
+            reason = trimToNull(reason);
+            message = trimToNull(message);
+
+            List<String> cleanXuids = new ArrayList<>();
+            if (xuids != null) {
+                for (String x : xuids) {
+                    String t = trimToNull(x);
+                    if (t != null) cleanXuids.add(t);
+                }
+            }
+            xuids = cleanXuids;
+
+            List<Target> cleanTargets = new ArrayList<>();
+            if (targets != null) {
+                for (Target t : targets) {
+                    if (t != null && t.xuid() != null) cleanTargets.add(t);
+                }
+            }
+            targets = cleanTargets;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Target(String xuid, String reason, String message) {
+        public Target {
+            xuid = trimToNull(xuid);
+            reason = trimToNull(reason);
+            message = trimToNull(message);
+        }
+    }
+
+    /**
+     * Payload present but not a JSON object (or a string that does not hold one).
+     */
+    public static final class NotAnObjectException extends IOException {
+        public NotAnObjectException(String message) {
+            super(message);
+        }
+    }
+
+    private final Map<Class<?>, ObjectReader> readers;
+
+    public CommandPayloads(ObjectMapper om) {
+        ObjectReader base = om.reader().without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.readers = Map.of(
+                Kick.class, base.forType(Kick.class),
+                Message.class, base.forType(Message.class),
+                Broadcast.class, base.forType(Broadcast.class),
+                Bulk.class, base.forType(Bulk.class)
+        );
+    }
+
+    /**
+     * @return the decoded payload, or null if the payload is missing/empty
+     * @throws NotAnObjectException if the payload is not a JSON object
+     * @throws IOException if the payload cannot be decoded into the given type
+     */
+    public <T> T decode(JsonNode payload, Class<T> type) throws IOException {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) throw new IllegalArgumentException("Unknown payload type: " + type.getName());
+
+        if (payload == null || payload.isNull() || payload.isMissingNode()) return null;
+
+        if (payload.isObject()) {
+            return reader.readValue(payload);
+        }
+
+        if (payload.isTextual()) {
+            String text = payload.textValue().trim();
+            if (text.isEmpty()) return null;
+            if (text.charAt(0) != '{') throw new NotAnObjectException("payload string is not a JSON object");
+            return reader.readValue(text);
+        }
+
+        throw new NotAnObjectException("payload is " + payload.getNodeType());
+    }
+
+    private static String trimToNull(String s) {
+        if (s == null) return null;
+        String t = s.trim();
+        return t.isEmpty() ? null : t;
+    }
+}
@@ -0,0 +1,257 @@
+package org.banbridge.log;
+
+import cn.nukkit.utils.Logger;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous, rate-limited logging pipeline in front of the Nukkit plugin logger.
+ *
+ * - Level gating happens before rate limiting, queueing and formatting. The caller still builds the
+ *   varargs array (and any key string), so call sites that concatenate check {@link #isEnabled} first.
+ * - Callers hand over a constant message plus key/value fields ({@link LogEvent}); formatting (colours,
+ *   string building) runs on a single daemon thread, never on the main thread or HttpClient threads.
+ * - Per-key rate limiting: at most burst events per key and window. Further events only increment a
+ *   counter, and one "N similar messages suppressed" line is written once the window ends. WARN/ERROR
+ *   are limited per area+message by default; INFO/SUCCESS/DEBUG only when logged with an explicit key.
+ * - The queue is bounded; when it is full events are counted and reported as dropped, never blocking.
+ *
+ * Before {@link #start()} and after {@link #close(long)} events are written synchronously.
+ */
+public final class BridgeLog {
+
+    private static final long SWEEP_INTERVAL_MILLIS = 1_000L;
+
+    private final Logger sink;
+    private final LogFormatter formatter;
+    private final int burst;
+    private final long windowMillis;
+
+    private final BlockingQueue<LogEvent> queue;
+    private final Map<String, KeyState> limits = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final LogLevel minLevel;
+    private volatile boolean running;
+    private Thread writer;
+
+    public BridgeLog(Logger sink, LogFormatter formatter, LogLevel minLevel,
+                     int burst, long windowMillis, int queueCapacity) {
+        this.sink = sink;
+        this.formatter = (formatter == null) ? LogFormatter.PLAIN : formatter;
+        this.minLevel = (minLevel == null) ? LogLevel.INFO : minLevel;
+        this.burst = Math.max(1, burst);
+        this.windowMillis = Math.max(1_000L, windowMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(16, queueCapacity));
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        writer = new Thread(this::runWriter, "BanBridge-Log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer thread and writes everything still queued (plus pending summaries) on the caller.
+     */
+    public void close(long timeoutMillis) {
+        Thread t;
+        synchronized (this) {
+            if (!running) return;
+            running = false;
+            t = writer;
+            writer = null;
+        }
+        t.interrupt();
+        try {
+            t.join(Math.max(0L, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        LogEvent e;
+        while ((e = queue.poll()) != null) write(e);
+        sweep(System.currentTimeMillis(), true);
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.severity() >= minLevel.severity();
+    }
+
+    public void debug(String area, String message, Object... fields) {
+        log(LogLevel.DEBUG, area, message, fields);
+    }
+
+    public void info(String area, String message, Object... fields) {
+        log(LogLevel.INFO, area, message, fields);
+    }
+
+    public void success(String area, String message, Object... fields) {
+        log(LogLevel.SUCCESS, area, message, fields);
+    }
+
+    public void warn(String area, String message, Object... fields) {
+        log(LogLevel.WARN, area, message, fields);
+    }
+
+    public void error(String area, String message, Object... fields) {
+        log(LogLevel.ERROR, area, message, fields);
+    }
+
+    public void log(LogLevel level, String area, String message, Object... fields) {
+        if (!isEnabled(level)) return;
+        String key = level.severity() >= LogLevel.WARN.severity() ? area + "|" + message : null;
+        logKeyed(level, key, area, message, fields);
+    }
+
+    /**
+     * Logs under an explicit rate-limit key (null = no limit), e.g. "http:" + op so every failing
+     * backend operation is limited on its own regardless of URL or error text.
+     */
+    public void logKeyed(LogLevel level, String key, String area, String message, Object... fields) {
+        if (!isEnabled(level)) return;
+        if (key != null && !acquire(key, level, area, message)) return;
+        enqueue(new LogEvent(System.currentTimeMillis(), level, area, message, fields));
+    }
+
+    // ----------------------------
+    // Rate limiting
+    // ----------------------------
+
+    private boolean acquire(String key, LogLevel level, String area, String message) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            KeyState st = limits.computeIfAbsent(key, k -> new KeyState(level, area, message, now));
+            synchronized (st) {
+                if (st.retired) continue;
+
+                if (now - st.windowStart >= windowMillis) {
+                    emitSummary(st);
+                    st.windowStart = now;
+                    st.count = 0;
+                }
+                if (st.count < burst) {
+                    st.count++;
+                    return true;
+                }
+                st.suppressed++;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Writes summaries for windows that ended (all windows if flushAll) and forgets keys that stayed
+     * quiet for a whole window.
+     */
+    private void sweep(long now, boolean flushAll) {
+        for (Iterator<Map.Entry<String, KeyState>> it = limits.entrySet().iterator(); it.hasNext(); ) {
+            KeyState st = it.next().getValue();
+            synchronized (st) {
+                if (!flushAll && now - st.windowStart < windowMillis) continue;
+                boolean idle = st.count == 0 && st.suppressed == 0;
+                emitSummary(st);
+                st.windowStart = now;
+                st.count = 0;
+                if (idle || flushAll) {
+                    st.retired = true;
+                    it.remove();
+                }
+            }
+        }
+
+        long d = dropped.getAndSet(0L);
+        if (d > 0) {
+            write(new LogEvent(System.currentTimeMillis(), LogLevel.WARN, "Log",
+                    d + " log messages dropped (queue full)", null));
+        }
+    }
+
+    /**
+     * Caller holds the state's lock.
+     */
+    private void emitSummary(KeyState st) {
+        if (st.suppressed == 0) return;
+        LogEvent summary = new LogEvent(System.currentTimeMillis(), st.level, st.area,
+                st.suppressed + " similar messages suppressed",
+                new Object[]{"last", st.message, "windowSec", windowMillis / 1_000L});
+        st.suppressed = 0;
+        enqueue(summary);
+    }
+
+    // ----------------------------
+    // Writer
+    // ----------------------------
+
+    private void enqueue(LogEvent e) {
+        if (!running) {
+            write(e);
+            return;
+        }
+        if (!queue.offer(e)) dropped.incrementAndGet();
+    }
+
+    private void runWriter() {
+        long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+        while (running) {
+            try {
+                LogEvent e = queue.poll(SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (e != null) write(e);
+            } catch (InterruptedException ie) {
+                if (!running) return;
+            }
+
+            long now = System.currentTimeMillis();
+            if (now >= nextSweep) {
+                sweep(now, false);
+                nextSweep = now + SWEEP_INTERVAL_MILLIS;
+            }
+        }
+    }
+
+    private void write(LogEvent e) {
+        String line;
+        try {
+            line = formatter.format(e);
+        } catch (Throwable t) {
+            line = LogFormatter.PLAIN.format(e);
+        }
+
+        try {
+            switch (e.level()) {
+                case DEBUG -> sink.debug(line);
+                case INFO, SUCCESS -> sink.info(line);
+                case WARN -> sink.warning(line);
+                case ERROR -> sink.error(line);
+            }
+        } catch (Throwable ignored) {
+            // never let logging take down the caller or the writer
+        }
+    }
+
+    private static final class KeyState {
+        final LogLevel level;
+        final String area;
+        final String message;
+
+        long windowStart;
+        int count;
+        int suppressed;
+        boolean retired;
+
+        KeyState(LogLevel level, String area, String message, long windowStart) {
+            this.level = level;
+            this.area = area;
+            this.message = message;
+            this.windowStart = windowStart;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.banbridge.log;
+
+/**
+ * One structured log event: a constant message plus key/value fields, without any formatting.
+ *
+ * fields alternates keys and values: {"id", 42L, "type", "KICK"}. Values are rendered on the log thread,
+ * so callers should pass immutable values (strings, numbers, snapshots).
+ */
+public record LogEvent(long timeMillis, LogLevel level, String area, String message, Object[] fields) {
+
+    private static final Object[] NO_FIELDS = new Object[0];
+
+    public LogEvent {
+        if (fields == null) fields = NO_FIELDS;
+    }
+
+    public int fieldCount() {
+        return fields.length / 2;
+    }
+
+    public String fieldKey(int i) {
+        return String.valueOf(fields[2 * i]);
+    }
+
+    public Object fieldValue(int i) {
+        return fields[2 * i + 1];
+    }
+}
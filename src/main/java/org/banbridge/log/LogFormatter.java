@@ -0,0 +1,32 @@
+package org.banbridge.log;
+
+/**
+ * Renders a {@link LogEvent} into a single console line. Runs on the log thread only.
+ */
+@FunctionalInterface
+public interface LogFormatter {
+
+    String format(LogEvent event);
+
+    /**
+     * "[area] message → key=value, key=value" without colours.
+     */
+    LogFormatter PLAIN = event -> {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append('[').append(event.area()).append("] ").append(event.message());
+        for (int i = 0; i < event.fieldCount(); i++) {
+            sb.append(i == 0 ? " → " : ", ").append(event.fieldKey(i)).append('=').append(inline(event.fieldValue(i)));
+        }
+        return sb.toString();
+    };
+
+    /**
+     * Single-line, clipped rendering of a field value; null/blank become "n/a".
+     */
+    static String inline(Object value) {
+        if (value == null) return "n/a";
+        String s = String.valueOf(value).replace('\n', ' ').replace('\r', ' ').trim();
+        if (s.isEmpty()) return "n/a";
+        return s.length() <= 240 ? s : s.substring(0, 240) + "...";
+    }
+}
@@ -0,0 +1,37 @@
+package org.banbridge.log;
+
+import java.util.Locale;
+
+/**
+ * Log levels. SUCCESS has INFO severity; it only changes how the line is presented.
+ */
+public enum LogLevel {
+    DEBUG(0),
+    INFO(1),
+    SUCCESS(1),
+    WARN(2),
+    ERROR(3);
+
+    private final int severity;
+
+    LogLevel(int severity) {
+        this.severity = severity;
+    }
+
+    public int severity() {
+        return severity;
+    }
+
+    /**
+     * Parses a config value (case-insensitive, WARNING accepted for WARN); unknown values give the fallback.
+     */
+    public static LogLevel parse(String value, LogLevel fallback) {
+        if (value == null) return fallback;
+        String v = value.trim().toUpperCase(Locale.ROOT);
+        if (v.equals("WARNING")) return WARN;
+        for (LogLevel l : values()) {
+            if (l.name().equals(v)) return l;
+        }
+        return fallback;
+    }
+}
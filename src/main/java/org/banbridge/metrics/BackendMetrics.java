@@ -0,0 +1,119 @@
+package org.banbridge.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-operation backend call statistics, recorded from HttpClient threads without locks.
+ *
+ * Per op ("banChanges", "commandsPoll", "metrics", ...):
+ * - request latency: first send to final response, including retries and backoff (what callers see)
+ * - attempt latency: one HTTP exchange (backend + network only)
+ * - counters: requests, attempts, retries, failed requests, bytes out/in, responses per status code
+ *   (status -1 = no response, e.g. connect error/timeout)
+ *
+ * Comparing attempt latency with request latency separates a slow backend from retry/backoff time;
+ * both are measured off the main thread, so main-thread stalls do not show up here.
+ */
+public final class BackendMetrics {
+
+    public static final long WINDOW_1M_MILLIS = 60_000L;
+    public static final long WINDOW_5M_MILLIS = 300_000L;
+
+    private static final long SLOT_MILLIS = 15_000L;
+    private static final int SLOTS = (int) (WINDOW_5M_MILLIS / SLOT_MILLIS);
+
+    private final Map<String, OpStats> ops = new ConcurrentHashMap<>();
+
+    public OpStats op(String name) {
+        OpStats s = ops.get(name);
+        return (s != null) ? s : ops.computeIfAbsent(name, OpStats::new);
+    }
+
+    public List<OpSnapshot> snapshot() {
+        List<OpSnapshot> out = new ArrayList<>();
+        for (OpStats s : new TreeMap<>(ops).values()) out.add(s.snapshot());
+        return out;
+    }
+
+    public static final class OpStats {
+        private final String name;
+
+        private final WindowedHistogram requestMicros = new WindowedHistogram(SLOT_MILLIS, SLOTS);
+        private final WindowedHistogram attemptMicros = new WindowedHistogram(SLOT_MILLIS, SLOTS);
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+
+        private OpStats(String name) {
+            this.name = name;
+        }
+
+        /**
+         * One HTTP exchange finished; status -1 if no response was received.
+         */
+        public void recordAttempt(long nanos, int status, long requestBytes) {
+            attempts.increment();
+            attemptMicros.record(nanos / 1_000L);
+            if (requestBytes > 0) bytesOut.add(requestBytes);
+
+            LongAdder c = statusCodes.get(status);
+            if (c == null) c = statusCodes.computeIfAbsent(status, k -> new LongAdder());
+            c.increment();
+        }
+
+        public void recordRetry() {
+            retries.increment();
+        }
+
+        /**
+         * The request completed (after all attempts).
+         */
+        public void recordRequest(long nanos, boolean ok, long responseBytes) {
+            requests.increment();
+            if (!ok) failures.increment();
+            requestMicros.record(nanos / 1_000L);
+            if (responseBytes > 0) bytesIn.add(responseBytes);
+        }
+
+        OpSnapshot snapshot() {
+            Map<Integer, Long> codes = new TreeMap<>();
+            statusCodes.forEach((k, v) -> codes.put(k, v.sum()));
+            return new OpSnapshot(
+                    name,
+                    requests.sum(), failures.sum(), attempts.sum(), retries.sum(),
+                    bytesOut.sum(), bytesIn.sum(), codes,
+                    requestMicros.snapshot(WINDOW_1M_MILLIS), requestMicros.snapshot(WINDOW_5M_MILLIS),
+                    attemptMicros.snapshot(WINDOW_1M_MILLIS), attemptMicros.snapshot(WINDOW_5M_MILLIS)
+            );
+        }
+    }
+
+    /**
+     * Counters are totals since start; histograms cover the last minute / five minutes.
+     */
+    public record OpSnapshot(
+            String op,
+            long requests,
+            long failures,
+            long attempts,
+            long retries,
+            long bytesOut,
+            long bytesIn,
+            Map<Integer, Long> statusCodes,
+            WindowedHistogram.Snapshot request1m,
+            WindowedHistogram.Snapshot request5m,
+            WindowedHistogram.Snapshot attempt1m,
+            WindowedHistogram.Snapshot attempt5m
+    ) {
+    }
+}
@@ -0,0 +1,168 @@
+package org.banbridge.metrics;
+
+import org.banbridge.api.ServerMetricsRequest;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+
+/**
+ * GC, allocation, safepoint and CPU metrics from an in-process JFR stream (JDK 17 RecordingStream).
+ *
+ * Enabled events and overhead budget (target: &lt; 1% CPU, &lt; 16 MB memory/disk):
+ * - jdk.GarbageCollection        one event per GC (pause sum + longest pause)
+ * - jdk.SafepointBegin           one event per safepoint, duration = time to bring threads to a stop
+ * - jdk.ExecuteVMOperation       one event per VM operation; safepoint time = sync + operations run
+ *                                at a safepoint (GC pauses included)
+ * - jdk.ObjectAllocationSample   throttled to 100 samples/s; each sample's weight estimates the bytes
+ *                                allocated since the previous one, so the sum is an allocation rate
+ * - jdk.CPULoad                  every 1 s (JVM user+system share of the machine)
+ * - jdk.ThreadCPULoad            every 5 s, only the main thread's value is kept
+ * No stack traces are recorded and the repository is capped at 16 MB / 30 s. Stream callbacks only add
+ * into the window below; nothing is formatted or logged per event.
+ *
+ * drain() returns the aggregate since the previous call (one metrics push window).
+ */
+public final class JfrCollector implements AutoCloseable {
+
+    private static final long MAX_REPO_BYTES = 16L * 1024 * 1024;
+
+    private final long mainThreadId;
+    private final RecordingStream stream;
+
+    // guarded by this; callbacks come from the single stream thread, drain() from the metrics task
+    private long windowStartNanos = System.nanoTime();
+    private long gcCount;
+    private long gcPauseNanos;
+    private long gcPauseMaxNanos;
+    private long safepointCount;
+    private long safepointNanos;
+    private long allocatedBytes;
+    private double jvmCpuSum;
+    private int jvmCpuSamples;
+    private double mainCpuSum;
+    private int mainCpuSamples;
+
+    /**
+     * @param mainThread thread whose CPU share is reported as mainThreadCpu
+     */
+    public JfrCollector(Thread mainThread) {
+        this.mainThreadId = mainThread.getId();
+
+        RecordingStream rs = new RecordingStream();
+        try {
+            rs.setMaxSize(MAX_REPO_BYTES);
+            rs.setMaxAge(Duration.ofSeconds(30));
+
+            rs.enable("jdk.GarbageCollection").withoutStackTrace();
+            rs.enable("jdk.SafepointBegin").withoutStackTrace();
+            rs.enable("jdk.ExecuteVMOperation").withoutStackTrace();
+            rs.enable("jdk.ObjectAllocationSample").withoutStackTrace().with("throttle", "100/s");
+            rs.enable("jdk.CPULoad").withPeriod(Duration.ofSeconds(1));
+            rs.enable("jdk.ThreadCPULoad").withPeriod(Duration.ofSeconds(5));
+
+            rs.onEvent("jdk.GarbageCollection", this::onGc);
+            rs.onEvent("jdk.SafepointBegin", this::onSafepoint);
+            rs.onEvent("jdk.ExecuteVMOperation", this::onVmOperation);
+            rs.onEvent("jdk.ObjectAllocationSample", this::onAllocation);
+            rs.onEvent("jdk.CPULoad", this::onCpuLoad);
+            rs.onEvent("jdk.ThreadCPULoad", this::onThreadCpuLoad);
+        } catch (RuntimeException e) {
+            rs.close();
+            throw e;
+        }
+        this.stream = rs;
+    }
+
+    public void start() {
+        stream.startAsync();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    /**
+     * Aggregate since the previous call; null if the window is empty (stream not delivering yet).
+     */
+    public synchronized ServerMetricsRequest.JvmStats drain() {
+        long now = System.nanoTime();
+        double seconds = (now - windowStartNanos) / 1e9;
+
+        ServerMetricsRequest.JvmStats out = null;
+        boolean any = gcCount > 0 || safepointCount > 0 || allocatedBytes > 0
+                || jvmCpuSamples > 0 || mainCpuSamples > 0;
+        if (any && seconds > 0) {
+            out = new ServerMetricsRequest.JvmStats(
+                    gcCount,
+                    gcPauseNanos / 1e6,
+                    gcPauseMaxNanos / 1e6,
+                    allocatedBytes / (1024.0 * 1024.0) / seconds,
+                    safepointCount,
+                    safepointNanos / 1e6,
+                    (jvmCpuSamples == 0) ? null : jvmCpuSum / jvmCpuSamples,
+                    (mainCpuSamples == 0) ? null : mainCpuSum / mainCpuSamples
+            );
+        }
+
+        windowStartNanos = now;
+        gcCount = 0;
+        gcPauseNanos = 0;
+        gcPauseMaxNanos = 0;
+        safepointCount = 0;
+        safepointNanos = 0;
+        allocatedBytes = 0;
+        jvmCpuSum = 0;
+        jvmCpuSamples = 0;
+        mainCpuSum = 0;
+        mainCpuSamples = 0;
+        return out;
+    }
+
+    // ----------------------------
+    // Stream callbacks (stream thread)
+    // ----------------------------
+
+    private synchronized void onGc(RecordedEvent e) {
+        gcCount++;
+        gcPauseNanos += Math.max(0L, e.getDuration("sumOfPauses").toNanos());
+        gcPauseMaxNanos = Math.max(gcPauseMaxNanos, e.getDuration("longestPause").toNanos());
+    }
+
+    private synchronized void onSafepoint(RecordedEvent e) {
+        safepointCount++;
+        safepointNanos += Math.max(0L, e.getDuration().toNanos());
+    }
+
+    private void onVmOperation(RecordedEvent e) {
+        if (!e.getBoolean("safepoint")) return;
+
+        long nanos = Math.max(0L, e.getDuration().toNanos());
+        synchronized (this) {
+            safepointNanos += nanos;
+        }
+    }
+
+    private synchronized void onAllocation(RecordedEvent e) {
+        allocatedBytes += Math.max(0L, e.getLong("weight"));
+    }
+
+    private synchronized void onCpuLoad(RecordedEvent e) {
+        jvmCpuSum += e.getFloat("jvmUser") + e.getFloat("jvmSystem");
+        jvmCpuSamples++;
+    }
+
+    private void onThreadCpuLoad(RecordedEvent e) {
+        RecordedThread t = e.getThread("eventThread");
+        if (t == null || t.getJavaThreadId() != mainThreadId) return;
+
+        float load = e.getFloat("user") + e.getFloat("system");
+        synchronized (this) {
+            mainCpuSum += load;
+            mainCpuSamples++;
+        }
+    }
+}
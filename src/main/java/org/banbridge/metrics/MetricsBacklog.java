@@ -0,0 +1,382 @@
+package org.banbridge.metrics;
+
+import org.banbridge.api.MetricsBatchRequest;
+import org.banbridge.api.ServerMetricsRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded buffer of metric samples whose POST failed, kept for backfill via /api/server/metrics/batch.
+ *
+ * Storage is one fixed-size ByteBuffer outside the heap: a memory-mapped file (survives restarts, capped by
+ * metrics.backlog.maxDiskKb) or a direct buffer (metrics.backlog.maxMemoryKb). It holds three rings of
+ * fixed 76-byte records (start time, resolution, sample count, 15 float fields):
+ *
+ *   raw   50% of the records, one per failed push (15 s by default)
+ *   1 min 30%, fed by the oldest raw records when the raw ring is full
+ *   5 min 20%, fed by the oldest 1 min records; when full the oldest record is dropped
+ *
+ * so recent outages keep full resolution and long ones degrade to coarser points instead of losing
+ * the start. At 256 KB that is ~4.3 h raw, ~17 h at 1 min and ~2.4 days at 5 min.
+ *
+ * Only the scalar series are kept (not stalls, JFR or per-collector windows). Merging averages gauges,
+ * takes the max of tail latencies/capacities and sums ticksOver50Ms. Not thread-safe on its own; all
+ * public methods are synchronized.
+ *
+ * Backfill is peek, POST, then {@link #remove(Peek)}. add() may evict records between the two, so a peek
+ * remembers the sequence range it took from each tier and remove() only drops records of that range still
+ * in the ring. While a peek is in flight its records are not merged into (the bucket gets a second point
+ * instead); a peeked record evicted into the next tier before the ack is sent again (at-least-once).
+ */
+public final class MetricsBacklog {
+
+    private static final int MAGIC = 0x42424d4c; // "BBML"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 64;
+    private static final int FIELDS = 15;
+    static final int RECORD_BYTES = 8 + 4 + 4 + FIELDS * 4;
+
+    private static final int RAM_USED = 0;
+    private static final int RAM_MAX = 1;
+    private static final int CPU = 2;
+    private static final int PLAYERS = 3;
+    private static final int PLAYERS_MAX = 4;
+    private static final int TPS = 5;
+    private static final int RX = 6;
+    private static final int TX = 7;
+    private static final int DISK_READ = 8;
+    private static final int DISK_WRITE = 9;
+    private static final int TICK_P50 = 10;
+    private static final int TICK_P95 = 11;
+    private static final int TICK_P99 = 12;
+    private static final int TICK_MAX = 13;
+    private static final int TICKS_OVER_50 = 14;
+
+    private static final int AVG = 0;
+    private static final int MAX = 1;
+    private static final int SUM = 2;
+    private static final int[] MERGE = {
+            AVG, MAX, AVG, AVG, MAX, AVG, AVG, AVG, AVG, AVG, AVG, MAX, MAX, MAX, SUM
+    };
+
+    private static final int[] RESOLUTION_SECONDS = {0, 60, 300};
+
+    private final ByteBuffer buf;
+    private final Tier[] tiers = new Tier[3];
+    private long dropped;
+
+    private final float[] a = new float[FIELDS];
+    private final float[] b = new float[FIELDS];
+
+    private MetricsBacklog(ByteBuffer buf, boolean restore) {
+        this.buf = buf;
+
+        int records = (buf.capacity() - HEADER_BYTES) / RECORD_BYTES;
+        int raw = Math.max(1, records / 2);
+        int minute = Math.max(1, records * 3 / 10);
+        int fiveMinutes = Math.max(1, records - raw - minute);
+        int offset = HEADER_BYTES;
+        int[] caps = {raw, minute, fiveMinutes};
+        for (int t = 0; t < 3; t++) {
+            tiers[t] = new Tier(t, offset, caps[t]);
+            offset += caps[t] * RECORD_BYTES;
+        }
+
+        if (!(restore && readHeader())) {
+            for (Tier t : tiers) {
+                t.head = 0;
+                t.size = 0;
+            }
+            dropped = 0;
+            writeHeader();
+        }
+    }
+
+    /**
+     * Backlog in a memory-mapped file of maxBytes (recreated if the size or format changed).
+     */
+    public static MetricsBacklog onDisk(Path file, int maxBytes) throws IOException {
+        int size = Math.max(HEADER_BYTES + 3 * RECORD_BYTES, maxBytes);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        boolean restore = Files.exists(file) && Files.size(file) == size;
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (!restore) ch.truncate(0);
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new MetricsBacklog(mapped, restore);
+        }
+    }
+
+    /**
+     * Backlog in a direct buffer of maxBytes (lost on restart).
+     */
+    public static MetricsBacklog inMemory(int maxBytes) {
+        int size = Math.max(HEADER_BYTES + 3 * RECORD_BYTES, maxBytes);
+        return new MetricsBacklog(ByteBuffer.allocateDirect(size), false);
+    }
+
+    /**
+     * Stores a sample that could not be posted.
+     */
+    public synchronized void add(long epochMillis, ServerMetricsRequest m) {
+        a[RAM_USED] = f(m.ramUsedMb());
+        a[RAM_MAX] = f(m.ramMaxMb());
+        a[CPU] = f(m.cpuLoad());
+        a[PLAYERS] = f(m.playersOnline());
+        a[PLAYERS_MAX] = f(m.playersMax());
+        a[TPS] = f(m.tps());
+        a[RX] = f(m.rxKbps());
+        a[TX] = f(m.txKbps());
+        a[DISK_READ] = f(m.diskReadKBps());
+        a[DISK_WRITE] = f(m.diskWriteKBps());
+        a[TICK_P50] = f(m.tickP50Ms());
+        a[TICK_P95] = f(m.tickP95Ms());
+        a[TICK_P99] = f(m.tickP99Ms());
+        a[TICK_MAX] = f(m.tickMaxMs());
+        a[TICKS_OVER_50] = f(m.ticksOver50Ms());
+
+        append(tiers[0], epochMillis, 1, a);
+        writeHeader();
+    }
+
+    public synchronized int size() {
+        return tiers[0].size + tiers[1].size + tiers[2].size;
+    }
+
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Up to max oldest points (5 min, then 1 min, then raw), without removing them. Must be followed by
+     * {@link #remove(Peek)} or {@link #release(Peek)}.
+     */
+    public synchronized Peek peekOldest(int max) {
+        List<MetricsBatchRequest.Point> out = new ArrayList<>(Math.min(max, size()));
+        long[] ends = new long[tiers.length];
+        for (int t = 2; t >= 0; t--) {
+            Tier tier = tiers[t];
+            int k = Math.min(max - out.size(), tier.size);
+            for (int i = 0; i < k; i++) out.add(toPoint(tier, tier.pos(i)));
+            ends[t] = tier.removed + k;
+            tier.inFlightEnd = ends[t];
+        }
+        return new Peek(out, ends);
+    }
+
+    /**
+     * Removes the peeked points that are still buffered (after a successful backfill).
+     */
+    public synchronized void remove(Peek peek) {
+        for (Tier tier : tiers) {
+            int k = (int) Math.max(0L, Math.min(tier.size, peek.ends[tier.level] - tier.removed));
+            tier.head = (tier.head + k) % tier.capacity;
+            tier.size -= k;
+            tier.removed += k;
+            tier.inFlightEnd = 0L;
+        }
+        writeHeader();
+    }
+
+    /**
+     * Keeps the peeked points (backfill failed).
+     */
+    public synchronized void release(Peek peek) {
+        for (Tier tier : tiers) tier.inFlightEnd = 0L;
+    }
+
+    /**
+     * Flushes a mapped file to disk.
+     */
+    public synchronized void close() {
+        if (buf instanceof MappedByteBuffer mapped) mapped.force();
+    }
+
+    // ----------------------------
+    // Rings
+    // ----------------------------
+
+    /**
+     * Appends a record, first evicting the oldest one into the next tier if the ring is full.
+     */
+    private void append(Tier tier, long start, int count, float[] values) {
+        if (tier.size == tier.capacity) evictOldest(tier);
+
+        int pos = tier.pos(tier.size);
+        writeRecord(pos, start, RESOLUTION_SECONDS[tier.level], count, values);
+        tier.size++;
+    }
+
+    private void evictOldest(Tier tier) {
+        int pos = tier.pos(0);
+        long start = buf.getLong(pos);
+        int count = buf.getInt(pos + 12);
+        float[] values = new float[FIELDS];
+        readFields(pos, values);
+        tier.head = (tier.head + 1) % tier.capacity;
+        tier.size--;
+        tier.removed++;
+
+        if (tier.level == tiers.length - 1) {
+            dropped += count;
+            return;
+        }
+
+        Tier next = tiers[tier.level + 1];
+        long bucketMillis = RESOLUTION_SECONDS[next.level] * 1_000L;
+        long bucket = Math.floorDiv(start, bucketMillis) * bucketMillis;
+
+        if (next.size > 0) {
+            int last = next.pos(next.size - 1);
+            boolean inFlight = next.removed + next.size - 1 < next.inFlightEnd;
+            if (!inFlight && buf.getLong(last) == bucket) {
+                int lastCount = buf.getInt(last + 12);
+                readFields(last, b);
+                merge(b, lastCount, values, count);
+                writeRecord(last, bucket, RESOLUTION_SECONDS[next.level], lastCount + count, b);
+                return;
+            }
+        }
+        append(next, bucket, count, values);
+    }
+
+    private static void merge(float[] into, int intoCount, float[] from, int fromCount) {
+        for (int i = 0; i < FIELDS; i++) {
+            float x = into[i];
+            float y = from[i];
+            if (Float.isNaN(y)) continue;
+            if (Float.isNaN(x)) {
+                into[i] = y;
+                continue;
+            }
+            into[i] = switch (MERGE[i]) {
+                case MAX -> Math.max(x, y);
+                case SUM -> x + y;
+                default -> (x * intoCount + y * fromCount) / (intoCount + fromCount);
+            };
+        }
+    }
+
+    private void writeRecord(int pos, long start, int resolutionSeconds, int count, float[] values) {
+        buf.putLong(pos, start);
+        buf.putInt(pos + 8, resolutionSeconds);
+        buf.putInt(pos + 12, count);
+        for (int i = 0; i < FIELDS; i++) buf.putFloat(pos + 16 + i * 4, values[i]);
+    }
+
+    private void readFields(int pos, float[] out) {
+        for (int i = 0; i < FIELDS; i++) out[i] = buf.getFloat(pos + 16 + i * 4);
+    }
+
+    private MetricsBatchRequest.Point toPoint(Tier tier, int pos) {
+        float[] v = new float[FIELDS];
+        readFields(pos, v);
+        return new MetricsBatchRequest.Point(
+                Instant.ofEpochMilli(buf.getLong(pos)).toString(),
+                buf.getInt(pos + 8),
+                buf.getInt(pos + 12),
+                i(v[RAM_USED]), i(v[RAM_MAX]), d(v[CPU]), d(v[PLAYERS]), i(v[PLAYERS_MAX]), d(v[TPS]),
+                d(v[RX]), d(v[TX]), d(v[DISK_READ]), d(v[DISK_WRITE]),
+                d(v[TICK_P50]), d(v[TICK_P95]), d(v[TICK_P99]), d(v[TICK_MAX]),
+                Float.isNaN(v[TICKS_OVER_50]) ? null : (long) v[TICKS_OVER_50]
+        );
+    }
+
+    // ----------------------------
+    // Header
+    // ----------------------------
+
+    private boolean readHeader() {
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION || buf.getInt(8) != RECORD_BYTES) return false;
+        for (Tier t : tiers) {
+            int base = 12 + t.level * 12;
+            int cap = buf.getInt(base);
+            int head = buf.getInt(base + 4);
+            int size = buf.getInt(base + 8);
+            if (cap != t.capacity || head < 0 || head >= cap || size < 0 || size > cap) return false;
+            t.head = head;
+            t.size = size;
+        }
+        dropped = buf.getLong(48);
+        return true;
+    }
+
+    private void writeHeader() {
+        buf.putInt(0, MAGIC);
+        buf.putInt(4, VERSION);
+        buf.putInt(8, RECORD_BYTES);
+        for (Tier t : tiers) {
+            int base = 12 + t.level * 12;
+            buf.putInt(base, t.capacity);
+            buf.putInt(base + 4, t.head);
+            buf.putInt(base + 8, t.size);
+        }
+        buf.putLong(48, dropped);
+    }
+
+    private static float f(Number n) {
+        return (n == null) ? Float.NaN : n.floatValue();
+    }
+
+    private static Double d(float v) {
+        return Float.isNaN(v) ? null : (double) v;
+    }
+
+    private static Integer i(float v) {
+        return Float.isNaN(v) ? null : Math.round(v);
+    }
+
+    /**
+     * Points taken by {@link #peekOldest(int)} and, per tier, the sequence number after the last one taken.
+     */
+    public static final class Peek {
+        private final List<MetricsBatchRequest.Point> points;
+        private final long[] ends;
+
+        private Peek(List<MetricsBatchRequest.Point> points, long[] ends) {
+            this.points = points;
+            this.ends = ends;
+        }
+
+        public List<MetricsBatchRequest.Point> points() {
+            return points;
+        }
+    }
+
+    private static final class Tier {
+        final int level;
+        final int offset;
+        final int capacity;
+        int head;
+        int size;
+
+        // Sequence number of the head record (records ever removed from this ring, since open)
+        long removed;
+        // Records with a sequence number below this are in flight
+        long inFlightEnd;
+
+        Tier(int level, int offset, int capacity) {
+            this.level = level;
+            this.offset = offset;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Byte position of the i-th oldest record.
+         */
+        int pos(int i) {
+            return offset + ((head + i) % capacity) * RECORD_BYTES;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.banbridge.metrics;
+
+import org.banbridge.api.ServerMetricsRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects metric samples between pushes so several of them can be posted as one timestamped array
+ * (POST /api/server/metrics/batch) instead of one request per sample.
+ *
+ * A batch is due once it holds maxSamples samples or its oldest sample is maxAgeMillis old; ask
+ * {@link #dueWith(long)} before adding the sample. maxSamples 1 turns batching off.
+ */
+public final class MetricsBatchBuffer {
+
+    public record Sample(long collectedAt, ServerMetricsRequest metrics) {}
+
+    private final int maxSamples;
+    private final long maxAgeMillis;
+
+    // guarded by this
+    private final List<Sample> samples = new ArrayList<>();
+
+    public MetricsBatchBuffer(int maxSamples, long maxAgeMillis) {
+        this.maxSamples = Math.max(1, maxSamples);
+        this.maxAgeMillis = Math.max(0L, maxAgeMillis);
+    }
+
+    public boolean enabled() {
+        return maxSamples > 1;
+    }
+
+    /**
+     * Whether adding a sample collected at now completes the batch.
+     */
+    public synchronized boolean dueWith(long now) {
+        if (samples.size() + 1 >= maxSamples) return true;
+        return !samples.isEmpty() && now - samples.get(0).collectedAt() >= maxAgeMillis;
+    }
+
+    public synchronized void add(long collectedAt, ServerMetricsRequest metrics) {
+        samples.add(new Sample(collectedAt, metrics));
+    }
+
+    /**
+     * Removes and returns all buffered samples, oldest first.
+     */
+    public synchronized List<Sample> drain() {
+        List<Sample> out = List.copyOf(samples);
+        samples.clear();
+        return out;
+    }
+}
@@ -0,0 +1,42 @@
+package org.banbridge.metrics;
+
+import cn.nukkit.plugin.PluginBase;
+
+import java.util.List;
+
+/**
+ * Source of one or more numeric metrics, sampled by {@link MetricsSampler} about once per second and
+ * aggregated into min/avg/max per metrics push window.
+ *
+ * Implementations are discovered with {@link java.util.ServiceLoader}: add the class to
+ * META-INF/services/org.banbridge.metrics.MetricsCollector (public no-arg constructor). The plugin class
+ * does not need to change.
+ *
+ * Lifecycle: init() once on the enabling thread, then sample() on the sampler thread only, close() on
+ * disable.
+ */
+public interface MetricsCollector {
+
+    /**
+     * Reads config, registers listeners, etc.
+     *
+     * @return false to stay disabled (unsupported platform, turned off in config)
+     */
+    default boolean init(PluginBase plugin) throws Exception {
+        return true;
+    }
+
+    /**
+     * Metric names (payload keys), fixed after init and unique across collectors.
+     */
+    List<String> metrics();
+
+    /**
+     * Writes one value per metric, in {@link #metrics()} order, to out[offset..]. Double.NaN means "not
+     * available this time". Called on the sampler thread; should not allocate in steady state.
+     */
+    void sample(double[] out, int offset);
+
+    default void close() {
+    }
+}
@@ -0,0 +1,202 @@
+package org.banbridge.metrics;
+
+import cn.nukkit.plugin.PluginBase;
+import org.banbridge.api.ServerMetricsRequest;
+import org.banbridge.log.BridgeLog;
+import org.banbridge.log.LogLevel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Samples all {@link MetricsCollector}s on a dedicated daemon thread at a fixed rate (default 1 Hz) and keeps
+ * min/sum/max per metric until the next metrics push drains them.
+ *
+ * Sampling more often than the push interval removes the aliasing of one-off readings (a CPU or bandwidth
+ * value taken at a single instant every 15 s). The sampling loop works on preallocated arrays only; it
+ * allocates nothing in steady state apart from what a collector itself does.
+ */
+public final class MetricsSampler {
+
+    private final MetricsCollector[] collectors;
+    private final int[] offsets;
+    private final String[] names;
+    private final long periodMillis;
+    private final BridgeLog log;
+
+    private final double[] scratch;
+
+    // guarded by this
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+    private final int[] n;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public MetricsSampler(List<MetricsCollector> collectors, long periodMillis, BridgeLog log) {
+        this.collectors = collectors.toArray(new MetricsCollector[0]);
+        this.offsets = new int[this.collectors.length];
+        this.periodMillis = Math.max(100L, periodMillis);
+        this.log = log;
+
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < this.collectors.length; i++) {
+            offsets[i] = all.size();
+            for (String m : this.collectors[i].metrics()) {
+                if (all.contains(m)) throw new IllegalArgumentException("Duplicate metric name: " + m);
+                all.add(m);
+            }
+        }
+        this.names = all.toArray(new String[0]);
+
+        this.scratch = new double[names.length];
+        this.min = new double[names.length];
+        this.max = new double[names.length];
+        this.sum = new double[names.length];
+        this.n = new int[names.length];
+        reset();
+    }
+
+    /**
+     * Loads collectors via ServiceLoader and keeps those whose init() succeeds and returns true; a collector
+     * reusing a metric name of an earlier one is skipped.
+     */
+    public static List<MetricsCollector> discover(PluginBase plugin, BridgeLog log) {
+        List<MetricsCollector> out = new ArrayList<>();
+        ServiceLoader<MetricsCollector> loader =
+                ServiceLoader.load(MetricsCollector.class, MetricsCollector.class.getClassLoader());
+
+        for (ServiceLoader.Provider<MetricsCollector> provider : loader.stream().toList()) {
+            String name = provider.type().getSimpleName();
+            try {
+                MetricsCollector c = provider.get();
+                if (c.init(plugin)) {
+                    if (out.stream().anyMatch(o -> o.metrics().stream().anyMatch(c.metrics()::contains))) {
+                        log.warn("Metrics", "Collector skipped: duplicate metric name", "collector", name);
+                        c.close();
+                        continue;
+                    }
+                    out.add(c);
+                    log.success("Metrics", "Collector enabled", "collector", name, "metrics", c.metrics());
+                } else {
+                    log.debug("Metrics", "Collector disabled", "collector", name);
+                }
+            } catch (Throwable t) {
+                log.warn("Metrics", "Collector init failed", "collector", name, "err", t.toString());
+            }
+        }
+        return out;
+    }
+
+    public List<String> metricNames() {
+        return List.of(names);
+    }
+
+    /**
+     * The active collector of the given type (for data beyond its sampled metrics), or null.
+     */
+    public <T> T collector(Class<T> type) {
+        for (MetricsCollector c : collectors) {
+            if (type.isInstance(c)) return type.cast(c);
+        }
+        return null;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "BanBridge-Sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null) t.interrupt();
+        for (MetricsCollector c : collectors) {
+            try {
+                c.close();
+            } catch (Throwable ignored) {
+                // ignore on shutdown
+            }
+        }
+    }
+
+    /**
+     * min/avg/max per metric since the previous call; metrics without a valid sample are left out.
+     */
+    public synchronized Map<String, ServerMetricsRequest.MetricWindow> drain() {
+        Map<String, ServerMetricsRequest.MetricWindow> out = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (n[i] == 0) continue;
+            out.put(names[i], new ServerMetricsRequest.MetricWindow(n[i], min[i], sum[i] / n[i], max[i]));
+        }
+        reset();
+        return out;
+    }
+
+    // ----------------------------
+    // Sampler thread
+    // ----------------------------
+
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            sampleOnce();
+
+            next += periodMillis * 1_000_000L;
+            long sleepMillis = (next - System.nanoTime()) / 1_000_000L;
+            if (sleepMillis <= 0) {
+                next = System.nanoTime(); // fell behind; do not burst to catch up
+                continue;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (!running) return;
+            }
+        }
+    }
+
+    private void sampleOnce() {
+        Arrays.fill(scratch, Double.NaN);
+        for (int i = 0; i < collectors.length; i++) {
+            try {
+                collectors[i].sample(scratch, offsets[i]);
+            } catch (Throwable t) {
+                if (!log.isEnabled(LogLevel.WARN)) continue;
+                log.logKeyed(LogLevel.WARN, "collector:" + i, "Metrics", "Collector sample failed",
+                        "collector", collectors[i].getClass().getSimpleName(), "err", t.toString());
+            }
+        }
+
+        synchronized (this) {
+            for (int i = 0; i < scratch.length; i++) {
+                double v = scratch[i];
+                if (Double.isNaN(v) || Double.isInfinite(v)) continue;
+                if (v < min[i]) min[i] = v;
+                if (v > max[i]) max[i] = v;
+                sum[i] += v;
+                n[i]++;
+            }
+        }
+    }
+
+    private void reset() {
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        Arrays.fill(sum, 0.0);
+        Arrays.fill(n, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package org.banbridge.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram over a sliding time window.
+ *
+ * Buckets are log-linear like HdrHistogram: values below 32 are exact, above that each power of two is
+ * split into 16 linear sub-buckets (≤ ~6% relative error), up to ~2^40 (values above are clamped).
+ * The unit is up to the caller (microseconds for latencies).
+ *
+ * Time is split into slots of intervalMillis; a ring of slots keeps the last (slots × interval) of
+ * samples. record() is a few atomic increments on the current slot; a slot is cleared (under its own
+ * lock, once per interval) when it is reused. Snapshots merge the slots inside the requested window.
+ * A writer that is delayed across a rollover may land in the next interval; that error is accepted.
+ */
+public final class WindowedHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int EXACT = 2 * SUB;
+    private static final int MAX_EXP = 40;
+    static final int BUCKETS = EXACT + (MAX_EXP - SUB_BITS) * SUB;
+
+    private final long intervalMillis;
+    private final Slot[] slots;
+
+    public WindowedHistogram(long intervalMillis, int slots) {
+        this.intervalMillis = Math.max(1L, intervalMillis);
+        this.slots = new Slot[Math.max(2, slots)];
+        for (int i = 0; i < this.slots.length; i++) this.slots[i] = new Slot();
+    }
+
+    public void record(long value) {
+        // nanoTime-based epochs can be negative
+        long e = Math.floorDiv(nowMillis(), intervalMillis);
+        Slot slot = slots[(int) Math.floorMod(e, (long) slots.length)];
+        if (slot.epoch != e && !slot.rollTo(e)) return;
+
+        slot.counts.incrementAndGet(bucketOf(value));
+        slot.count.incrementAndGet();
+        long v = Math.max(0L, value);
+        long m;
+        while (v > (m = slot.max.get())) {
+            if (slot.max.compareAndSet(m, v)) break;
+        }
+    }
+
+    /**
+     * Merges the current slot and the slots before it that fall inside windowMillis.
+     */
+    public Snapshot snapshot(long windowMillis) {
+        long eNow = Math.floorDiv(nowMillis(), intervalMillis);
+        int k = (int) Math.min(slots.length, Math.max(1L, windowMillis / intervalMillis));
+
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+        long max = 0;
+        for (Slot slot : slots) {
+            long e = slot.epoch;
+            if (e > eNow || e <= eNow - k) continue;
+            for (int i = 0; i < BUCKETS; i++) merged[i] += slot.counts.get(i);
+            count += slot.count.get();
+            max = Math.max(max, slot.max.get());
+        }
+        return new Snapshot(merged, count, max);
+    }
+
+    static int bucketOf(long value) {
+        if (value < EXACT) return (int) Math.max(0L, value);
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) ((value >>> (exp - SUB_BITS)) & (SUB - 1));
+        int idx = EXACT + (exp - SUB_BITS - 1) * SUB + mantissa;
+        return Math.min(idx, BUCKETS - 1);
+    }
+
+    static long lowerBound(int idx) {
+        if (idx < EXACT) return idx;
+        int exp = (idx - EXACT) / SUB + SUB_BITS + 1;
+        int mantissa = (idx - EXACT) % SUB;
+        return ((long) (SUB + mantissa)) << (exp - SUB_BITS);
+    }
+
+    private static long nowMillis() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    private static final class Slot {
+        volatile long epoch = Long.MIN_VALUE;
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        /**
+         * @return false if the slot already moved past e (stale writer; the sample is dropped)
+         */
+        synchronized boolean rollTo(long e) {
+            if (epoch == e) return true;
+            if (epoch > e) return false;
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0L);
+            count.set(0L);
+            max.set(0L);
+            epoch = e;
+            return true;
+        }
+    }
+
+    /**
+     * Merged, immutable view of a window.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Highest value equivalent to the q-quantile (0..1), capped at the observed max; 0 if empty.
+         */
+        public long percentile(double q) {
+            if (count == 0) return 0L;
+            long rank = (long) Math.ceil(Math.max(0.0, Math.min(1.0, q)) * count);
+            if (rank < 1) rank = 1;
+
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    long upper = (i + 1 < BUCKETS) ? lowerBound(i + 1) - 1 : max;
+                    return Math.min(upper, max);
+                }
+            }
+            return max;
+        }
+    }
+}
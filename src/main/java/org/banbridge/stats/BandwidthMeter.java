@@ -1,10 +1,29 @@
 package org.banbridge.stats;
 
+import cn.nukkit.plugin.PluginBase;
+import org.banbridge.metrics.MetricsCollector;
+
+import java.util.List;
+
 /**
  * Simple abstraction so the plugin can swap implementations per OS.
+ *
+ * A bandwidth meter is a {@link MetricsCollector} for rxKbps/txKbps; each sample is the rate since the
+ * previous sample. Which implementation is active is decided in init() from metrics.networkScope.
  */
-public interface BandwidthMeter {
-    Result sampleKbps();
+public interface BandwidthMeter extends MetricsCollector {
+
+    List<String> METRICS = List.of("rxKbps", "txKbps");
+
+    @Override
+    default List<String> metrics() {
+        return METRICS;
+    }
 
-    record Result(Double rxKbps, Double txKbps) {}
+    /**
+     * metrics.networkScope: "host" (default) or "process".
+     */
+    static boolean hostScope(PluginBase plugin) {
+        return !"process".equalsIgnoreCase(plugin.getConfig().getString("metrics.networkScope", "host"));
+    }
 }
@@ -0,0 +1,235 @@
+package org.banbridge.stats;
+
+import cn.nukkit.plugin.PluginBase;
+import org.banbridge.metrics.MetricsCollector;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Machine (or container) and JVM CPU load (0..1) since the previous sample.
+ *
+ * - cpuLoad, same meaning as the container-aware OperatingSystemMXBean value it replaces:
+ *   - in a container with cgroup v2: usage_usec from the cgroup's cpu.stat against its CPU limit
+ *     (cpu.max quota/period, else the available processors), parsed in place;
+ *   - in a container without cgroup v2 (v1/hybrid hosts): OperatingSystemMXBean.getCpuLoad();
+ *   - elsewhere: busy share of all CPUs from the aggregate "cpu" line of /proc/stat, parsed in place;
+ *     without /proc/stat the OperatingSystemMXBean value.
+ *   Inside Docker/Pterodactyl /proc/stat shows the host, which is why it is only used outside containers.
+ * - processCpuLoad: this JVM's CPU time delta / (wall time × available processors).
+ *
+ * The OperatingSystemMXBean load methods re-read and parse cgroup files on every call, allocating each
+ * time, so they are only the fallback. The CPU limit is read once in init().
+ */
+public final class CpuLoadCollector implements MetricsCollector {
+
+    private static final List<String> METRICS = List.of("cpuLoad", "processCpuLoad");
+    private static final byte[] CPU = "cpu ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] USAGE_USEC = "usage_usec ".getBytes(StandardCharsets.US_ASCII);
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+
+    /**
+     * /proc/stat cpu columns: user nice system idle iowait irq softirq steal (guest columns are already
+     * included in user/nice).
+     */
+    private static final int COLUMNS = 8;
+    private static final int IDLE = 3;
+    private static final int IOWAIT = 4;
+
+    private final ProcFile procStat = new ProcFile(Path.of("/proc/stat"), 4096);
+    private final long[] columns = new long[COLUMNS];
+    private com.sun.management.OperatingSystemMXBean os;
+    private boolean hasProcStat;
+    private boolean container;
+    private ProcFile cgroupCpuStat;
+    private double cgroupCpus;
+
+    // Previous reading per source, -1 = none yet; a failed read keeps the previous baseline
+    private long prevTotal = -1L;
+    private long prevIdle = -1L;
+    private long prevCgroupUsageMicros = -1L;
+    private long prevCgroupNanos;
+    private long prevProcessCpuNanos = -1L;
+    private long prevProcessNanos;
+
+    @Override
+    public boolean init(PluginBase plugin) {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean sunOs) os = sunOs;
+        hasProcStat = procStat.exists();
+        container = inContainer();
+        if (container) initCgroupV2();
+        return os != null || hasProcStat || cgroupCpuStat != null;
+    }
+
+    @Override
+    public List<String> metrics() {
+        return METRICS;
+    }
+
+    @Override
+    public synchronized void sample(double[] out, int offset) {
+        out[offset] = Double.NaN;
+        out[offset + 1] = Double.NaN;
+
+        long now = System.nanoTime();
+        if (cgroupCpuStat != null) {
+            long usage = readCgroupUsageMicros();
+            if (usage >= 0) {
+                long dUsage = usage - prevCgroupUsageMicros;
+                long dt = now - prevCgroupNanos;
+                if (prevCgroupUsageMicros >= 0 && dUsage >= 0 && dt > 0) {
+                    out[offset] = Math.max(0.0, Math.min(1.0, dUsage * 1000.0 / (dt * cgroupCpus)));
+                }
+                prevCgroupUsageMicros = usage;
+                prevCgroupNanos = now;
+            }
+        } else if (container) {
+            if (os != null) {
+                double v = os.getCpuLoad();
+                if (v >= 0.0) out[offset] = v;
+            }
+        } else if (readProcStat()) {
+            long total = 0;
+            for (long c : columns) total += c;
+            long idle = columns[IDLE] + columns[IOWAIT];
+            long dTotal = total - prevTotal;
+            long dIdle = idle - prevIdle;
+            if (prevTotal >= 0 && dTotal > 0 && dIdle >= 0) {
+                out[offset] = Math.max(0.0, Math.min(1.0, (dTotal - dIdle) / (double) dTotal));
+            }
+            prevTotal = total;
+            prevIdle = idle;
+        } else if (os != null) {
+            double v = os.getCpuLoad();
+            if (v >= 0.0) out[offset] = v;
+        }
+
+        long processCpu = (os == null) ? -1L : os.getProcessCpuTime();
+        if (processCpu >= 0) {
+            long dProcess = processCpu - prevProcessCpuNanos;
+            long dt = now - prevProcessNanos;
+            if (prevProcessCpuNanos >= 0 && dProcess >= 0 && dt > 0) {
+                int cpus = Math.max(1, Runtime.getRuntime().availableProcessors());
+                out[offset + 1] = Math.min(1.0, dProcess / ((double) dt * cpus));
+            }
+            prevProcessCpuNanos = processCpu;
+            prevProcessNanos = now;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        procStat.close();
+        if (cgroupCpuStat != null) cgroupCpuStat.close();
+    }
+
+    // ----------------------------
+    // cgroup
+    // ----------------------------
+
+    /**
+     * Same idea as the JDK's container detection: a Docker marker file, or a cgroup path that is the
+     * namespace root or names a container runtime.
+     */
+    private static boolean inContainer() {
+        if (Files.exists(Path.of("/.dockerenv")) || Files.exists(Path.of("/run/.containerenv"))) return true;
+        String path = cgroupV2Path();
+        if (path == null) return false;
+        return path.equals("/") || path.contains("docker") || path.contains("kubepods")
+                || path.contains("containerd") || path.contains("lxc") || path.contains("libpod");
+    }
+
+    /**
+     * "0::/path" line of /proc/self/cgroup, or null.
+     */
+    private static String cgroupV2Path() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/cgroup"))) {
+                if (line.startsWith("0::")) return line.substring(3).trim();
+            }
+        } catch (Exception ignored) {
+            // not Linux / not readable
+        }
+        return null;
+    }
+
+    /**
+     * Uses the process's cgroup v2 directory (or the namespace root) if it has cpu.stat.
+     */
+    private void initCgroupV2() {
+        String path = cgroupV2Path();
+        Path dir = (path == null || path.equals("/")) ? CGROUP_ROOT : CGROUP_ROOT.resolve(path.substring(1));
+        if (!Files.isReadable(dir.resolve("cpu.stat"))) dir = CGROUP_ROOT;
+        if (!Files.isReadable(dir.resolve("cpu.stat")) || !Files.exists(CGROUP_ROOT.resolve("cgroup.controllers"))) return;
+
+        double cpus = Math.max(1, Runtime.getRuntime().availableProcessors());
+        try {
+            String[] max = Files.readString(dir.resolve("cpu.max")).trim().split("\\s+");
+            if (max.length == 2 && !max[0].equals("max")) {
+                double quota = Double.parseDouble(max[0]) / Double.parseDouble(max[1]);
+                if (quota > 0) cpus = Math.min(cpus, quota);
+            }
+        } catch (Exception ignored) {
+            // no cpu controller / no limit: available processors
+        }
+
+        ProcFile f = new ProcFile(dir.resolve("cpu.stat"), 512);
+        this.cgroupCpus = cpus;
+        this.cgroupCpuStat = f;
+        if (readCgroupUsageMicros() < 0) {
+            f.close();
+            this.cgroupCpuStat = null;
+        }
+    }
+
+    private long readCgroupUsageMicros() {
+        int len;
+        try {
+            len = cgroupCpuStat.read();
+        } catch (IOException e) {
+            return -1L;
+        }
+        byte[] b = cgroupCpuStat.buffer();
+        int pos = 0;
+        while (pos < len) {
+            int end = ProcFile.indexOf(b, (byte) '\n', pos, len);
+            if (ProcFile.startsWith(b, pos, end, USAGE_USEC)) {
+                long v = 0;
+                int start = pos = ProcFile.skipSpaces(b, pos + USAGE_USEC.length, end);
+                while (pos < end && b[pos] >= '0' && b[pos] <= '9') v = v * 10 + (b[pos++] - '0');
+                return (pos == start) ? -1L : v;
+            }
+            pos = end + 1;
+        }
+        return -1L;
+    }
+
+    private boolean readProcStat() {
+        if (!hasProcStat) return false;
+        int len;
+        try {
+            len = procStat.read();
+        } catch (IOException e) {
+            return false;
+        }
+        byte[] b = procStat.buffer();
+        if (!ProcFile.startsWith(b, 0, len, CPU)) return false;
+
+        int end = ProcFile.indexOf(b, (byte) '\n', 0, len);
+        int pos = CPU.length;
+        for (int col = 0; col < COLUMNS; col++) {
+            pos = ProcFile.skipSpaces(b, pos, end);
+            long v = 0;
+            int start = pos;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9') v = v * 10 + (b[pos++] - '0');
+            columns[col] = (pos == start) ? 0L : v;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package org.banbridge.stats;
+
+import cn.nukkit.plugin.PluginBase;
+import org.banbridge.metrics.MetricsCollector;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Disk throughput of this JVM from /proc/self/io (Linux only).
+ *
+ * Uses read_bytes/write_bytes, i.e. I/O that reached the block layer (page-cache hits and socket traffic
+ * are not included, unlike rchar/wchar). Rates are KB/s (1000 bytes) since the previous sample; the first
+ * sample returns 0.0 / 0.0; NaN if the file cannot be read. Like {@link LinuxBandwidthMeter} the file is
+ * re-read into a reused buffer and parsed in place.
+ */
+public final class DiskIoMeter implements MetricsCollector {
+
+    private static final List<String> METRICS = List.of("diskReadKBps", "diskWriteKBps");
+    private static final byte[] READ_BYTES = "read_bytes:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WRITE_BYTES = "write_bytes:".getBytes(StandardCharsets.US_ASCII);
+
+    private final ProcFile procSelfIo = new ProcFile(Path.of("/proc/self/io"), 512);
+
+    private boolean sampled;
+    private long prevNanos;
+    private long prevRead;
+    private long prevWrite;
+
+    @Override
+    public boolean init(PluginBase plugin) {
+        return procSelfIo.exists();
+    }
+
+    @Override
+    public List<String> metrics() {
+        return METRICS;
+    }
+
+    @Override
+    public synchronized void sample(double[] out, int offset) {
+        out[offset] = Double.NaN;
+        out[offset + 1] = Double.NaN;
+
+        long read;
+        long write;
+        try {
+            int len = procSelfIo.read();
+            read = valueOf(procSelfIo.buffer(), len, READ_BYTES);
+            write = valueOf(procSelfIo.buffer(), len, WRITE_BYTES);
+        } catch (IOException e) {
+            return;
+        }
+        if (read < 0 || write < 0) return;
+
+        long now = System.nanoTime();
+        boolean first = !sampled;
+        long dtNanos = now - prevNanos;
+        long dRead = read - prevRead;
+        long dWrite = write - prevWrite;
+        sampled = true;
+        prevNanos = now;
+        prevRead = read;
+        prevWrite = write;
+
+        if (first || dRead < 0 || dWrite < 0) {
+            out[offset] = 0.0;
+            out[offset + 1] = 0.0;
+            return;
+        }
+
+        double seconds = Math.max(0.001, dtNanos / 1_000_000_000.0);
+        out[offset] = dRead / seconds / 1000.0;
+        out[offset + 1] = dWrite / seconds / 1000.0;
+    }
+
+    @Override
+    public synchronized void close() {
+        procSelfIo.close();
+    }
+
+    /**
+     * Value of the "key: number" line starting with key; -1 if missing.
+     */
+    private static long valueOf(byte[] buf, int len, byte[] key) {
+        int pos = 0;
+        while (pos < len) {
+            if (ProcFile.startsWith(buf, pos, len, key)) {
+                int i = ProcFile.skipSpaces(buf, pos + key.length, len);
+                long v = 0;
+                int start = i;
+                while (i < len && buf[i] >= '0' && buf[i] <= '9') v = v * 10 + (buf[i++] - '0');
+                return (i == start) ? -1L : v;
+            }
+            pos = ProcFile.indexOf(buf, (byte) '\n', pos, len) + 1;
+        }
+        return -1L;
+    }
+}
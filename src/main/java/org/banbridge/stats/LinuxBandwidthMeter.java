@@ -1,97 +1,266 @@
 package org.banbridge.stats;
 
+import cn.nukkit.plugin.PluginBase;
+
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Linux (Ubuntu/Debian/etc.) bandwidth meter based on /proc/net/dev.
  *
- * Produces rxKbps/txKbps (KBit/s):
+ * Produces rxKbps/txKbps (KBit/s) for one interface (metrics.networkScope: host, on Linux):
  *   kbps = bytesPerSec * 8 / 1000
+ * The interface is metrics.netInterface if present, else the first non-loopback interface; the choice is
+ * cached and only re-resolved when the interface list changes.
  *
  * Guarantee on Linux where /proc/net/dev is readable:
- * - Always returns non-negative numbers
- * - First successful sample returns 0.0 / 0.0 (no previous delta window)
+ * - Always returns non-negative numbers (NaN if the file or interface is unavailable)
+ * - First successful sample (and the first after the chosen interface changed) returns 0.0 / 0.0
+ *
+ * Sampling keeps /proc/net/dev open, re-reads it from offset 0 into a reused byte buffer and parses the
+ * counters in place into a long[] per interface (interface name Strings are only created when the list
+ * changes). Per-interface bytes, packets, errors and drops from the last sample are available through
+ * {@link #interfaces()} and exported on the scrape endpoint as banbridge_network_*_total{iface="..."}.
  */
 public final class LinuxBandwidthMeter implements BandwidthMeter {
 
-    private final String preferredIface; // nullable => auto
-    private Snapshot prev;
+    private static final int RX_BYTES = 0;
+    private static final int RX_PACKETS = 1;
+    private static final int RX_ERRS = 2;
+    private static final int RX_DROP = 3;
+    private static final int TX_BYTES = 4;
+    private static final int TX_PACKETS = 5;
+    private static final int TX_ERRS = 6;
+    private static final int TX_DROP = 7;
+    private static final int FIELDS = 8;
+
+    /**
+     * /proc/net/dev columns after "iface:" (rx: bytes packets errs drop fifo frame compressed multicast,
+     * tx: bytes packets errs drop fifo colls carrier compressed) → counter slot, -1 = not kept.
+     */
+    private static final int[] COLUMN_FIELD = {
+            RX_BYTES, RX_PACKETS, RX_ERRS, RX_DROP, -1, -1, -1, -1,
+            TX_BYTES, TX_PACKETS, TX_ERRS, TX_DROP, -1, -1, -1, -1
+    };
+
+    private String preferredIface; // nullable => auto
+
+    private final ProcFile procNetDev = new ProcFile(Path.of("/proc/net/dev"), 8192);
+
+    // Last parsed /proc/net/dev, in file order
+    private String[] names = new String[8];
+    private long[] counters = new long[8 * FIELDS];
+    private int count;
+
+    private String chosenName;
+    private int chosenIdx = -1;
+
+    private String prevName;
+    private long prevNanos;
+    private long prevRx;
+    private long prevTx;
+
+    /**
+     * ServiceLoader constructor; the interface is read from metrics.netInterface in init().
+     */
+    public LinuxBandwidthMeter() {
+        this(null);
+    }
 
     public LinuxBandwidthMeter(String preferredIface) {
-        this.preferredIface = (preferredIface == null || preferredIface.isBlank()) ? null : preferredIface.trim();
+        this.preferredIface = normalizeIface(preferredIface);
     }
 
     @Override
-    public synchronized Result sampleKbps() {
-        Snapshot now = readSnapshot(preferredIface);
-        if (now == null) return new Result(null, null);
+    public boolean init(PluginBase plugin) {
+        if (!BandwidthMeter.hostScope(plugin) || !procNetDev.exists()) return false;
+        preferredIface = normalizeIface(plugin.getConfig().getString("metrics.netInterface"));
+        return true;
+    }
 
-        if (prev == null) {
-            prev = now;
-            return new Result(0.0, 0.0);
-        }
+    @Override
+    public synchronized void sample(double[] out, int offset) {
+        out[offset] = Double.NaN;
+        out[offset + 1] = Double.NaN;
+        if (!refresh()) return;
 
-        long dtNanos = now.nanoTime - prev.nanoTime;
-        double seconds = Math.max(0.001, dtNanos / 1_000_000_000.0);
+        int i = chosenIdx;
+        if (i < 0) return;
 
-        long dRx = now.rxBytes - prev.rxBytes;
-        long dTx = now.txBytes - prev.txBytes;
+        long nowNanos = System.nanoTime();
+        long rx = counters[i * FIELDS + RX_BYTES];
+        long tx = counters[i * FIELDS + TX_BYTES];
 
-        prev = now;
+        boolean first = !chosenName.equals(prevName);
+        long dtNanos = nowNanos - prevNanos;
+        long dRx = rx - prevRx;
+        long dTx = tx - prevTx;
 
-        if (dRx < 0 || dTx < 0) return new Result(0.0, 0.0);
+        prevName = chosenName;
+        prevNanos = nowNanos;
+        prevRx = rx;
+        prevTx = tx;
 
-        double rxKbps = (dRx / seconds) * 8.0 / 1000.0;
-        double txKbps = (dTx / seconds) * 8.0 / 1000.0;
+        if (first || dRx < 0 || dTx < 0) {
+            out[offset] = 0.0;
+            out[offset + 1] = 0.0;
+            return;
+        }
 
-        if (rxKbps < 0) rxKbps = 0.0;
-        if (txKbps < 0) txKbps = 0.0;
+        double seconds = Math.max(0.001, dtNanos / 1_000_000_000.0);
+        out[offset] = Math.max(0.0, (dRx / seconds) * 8.0 / 1000.0);
+        out[offset + 1] = Math.max(0.0, (dTx / seconds) * 8.0 / 1000.0);
+    }
 
-        return new Result(rxKbps, txKbps);
+    @Override
+    public synchronized void close() {
+        procNetDev.close();
     }
 
-    private static Snapshot readSnapshot(String preferredIface) {
-        Path p = Path.of("/proc/net/dev");
-        if (!Files.exists(p)) return null;
+    /**
+     * Name of the interface rx/txKbps refer to; null until a sample found one.
+     */
+    public synchronized String chosenInterface() {
+        return chosenName;
+    }
 
+    /**
+     * Counters of every interface (loopback included) as of the last sample, in /proc/net/dev order.
+     */
+    public synchronized List<InterfaceCounters> interfaces() {
+        List<InterfaceCounters> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int b = i * FIELDS;
+            out.add(new InterfaceCounters(
+                    names[i],
+                    counters[b + RX_BYTES], counters[b + RX_PACKETS], counters[b + RX_ERRS], counters[b + RX_DROP],
+                    counters[b + TX_BYTES], counters[b + TX_PACKETS], counters[b + TX_ERRS], counters[b + TX_DROP]
+            ));
+        }
+        return out;
+    }
+
+    // ----------------------------
+    // Reading / parsing
+    // ----------------------------
+
+    private boolean refresh() {
+        int len;
         try {
-            for (String line : Files.readAllLines(p)) {
-                if (!line.contains(":")) continue;
+            len = procNetDev.read();
+        } catch (IOException e) {
+            return false;
+        }
+        boolean changed = parse(procNetDev.buffer(), len);
+        if (changed || chosenIdx < 0) resolveChosen();
+        return true;
+    }
 
-                String[] parts = line.trim().split(":");
-                if (parts.length != 2) continue;
+    /**
+     * @return true if the interface list (names or order) changed
+     */
+    private boolean parse(byte[] buf, int len) {
+        boolean changed = false;
+        int n = 0;
+        int pos = 0;
 
-                String iface = parts[0].trim();
-                if ("lo".equals(iface)) continue;
+        while (pos < len) {
+            int lineEnd = ProcFile.indexOf(buf, (byte) '\n', pos, len);
+            int colon = ProcFile.indexOf(buf, (byte) ':', pos, lineEnd);
+            if (colon < lineEnd) {
+                int nameStart = ProcFile.skipSpaces(buf, pos, colon);
+                int nameEnd = colon;
+                while (nameEnd > nameStart && buf[nameEnd - 1] == ' ') nameEnd--;
 
-                if (preferredIface != null && !preferredIface.equals(iface)) continue;
+                ensureCapacity(n + 1);
+                if (!sameName(names[n], buf, nameStart, nameEnd)) {
+                    names[n] = new String(buf, nameStart, nameEnd - nameStart, StandardCharsets.US_ASCII);
+                    changed = true;
+                }
+                if (parseCounters(buf, colon + 1, lineEnd, n * FIELDS)) n++;
+            }
+            pos = lineEnd + 1;
+        }
 
-                String[] cols = parts[1].trim().split("\\s+");
-                if (cols.length < 16) continue;
+        if (n != count) changed = true;
+        for (int i = n; i < count; i++) names[i] = null;
+        count = n;
+        return changed;
+    }
 
-                long rxBytes = parseLongSafe(cols[0]);
-                long txBytes = parseLongSafe(cols[8]);
-                if (rxBytes < 0 || txBytes < 0) continue;
+    private boolean parseCounters(byte[] b, int pos, int end, int base) {
+        for (int col = 0; col < COLUMN_FIELD.length; col++) {
+            pos = ProcFile.skipSpaces(b, pos, end);
+            if (pos >= end) return false;
 
-                return new Snapshot(System.nanoTime(), rxBytes, txBytes);
+            long v = 0;
+            int start = pos;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9') {
+                v = v * 10 + (b[pos] - '0');
+                pos++;
             }
+            if (pos == start) return false;
 
-            if (preferredIface != null) return readSnapshot(null);
-            return null;
-        } catch (IOException ignored) {
-            return null;
+            int field = COLUMN_FIELD[col];
+            if (field >= 0) counters[base + field] = v;
         }
+        return true;
     }
 
-    private static long parseLongSafe(String s) {
-        try {
-            return Long.parseLong(s);
-        } catch (Exception e) {
-            return -1;
+    private void resolveChosen() {
+        int found = -1;
+        if (preferredIface != null) found = indexOfName(preferredIface);
+        if (found < 0) {
+            for (int i = 0; i < count; i++) {
+                if (!"lo".equals(names[i])) {
+                    found = i;
+                    break;
+                }
+            }
+        }
+        chosenIdx = found;
+        chosenName = (found < 0) ? null : names[found];
+    }
+
+    private int indexOfName(String name) {
+        for (int i = 0; i < count; i++) if (name.equals(names[i])) return i;
+        return -1;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= names.length) return;
+        names = Arrays.copyOf(names, names.length * 2);
+        counters = Arrays.copyOf(counters, names.length * FIELDS);
+    }
+
+    private static String normalizeIface(String s) {
+        return (s == null || s.isBlank()) ? null : s.trim();
+    }
+
+    private static boolean sameName(String s, byte[] b, int start, int end) {
+        if (s == null || s.length() != end - start) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) != (char) (b[start + i] & 0xFF)) return false;
         }
+        return true;
     }
 
-    private record Snapshot(long nanoTime, long rxBytes, long txBytes) {}
-}
\ No newline at end of file
+    /**
+     * Cumulative counters of one interface since boot.
+     */
+    public record InterfaceCounters(
+            String name,
+            long rxBytes,
+            long rxPackets,
+            long rxErrs,
+            long rxDrop,
+            long txBytes,
+            long txPackets,
+            long txErrs,
+            long txDrop
+    ) {}
+}
@@ -1,34 +1,67 @@
 package org.banbridge.stats;
 
+import cn.nukkit.plugin.PluginBase;
 import oshi.SystemInfo;
 import oshi.hardware.HardwareAbstractionLayer;
 import oshi.hardware.NetworkIF;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Cross-platform bandwidth meter using OSHI.
  *
  * Compatible with OSHI versions where NetworkIF exposes getName() (not getIfName()).
+ * Used for metrics.networkScope: host where /proc/net/dev is not available.
+ *
+ * Building SystemInfo and the first getNetworkIFs() enumeration can take seconds, so init() only starts
+ * them on a daemon thread; samples are NaN (null in the payload) until the interface list is ready. The
+ * enumerated list is filtered once ({@link #shouldIgnore}) and cached; sample() then only refreshes the
+ * counters of the selected interfaces. The list is re-enumerated in the background every
+ * {@link #REFRESH_NANOS} to pick up added or removed adapters.
  */
 public final class OshiBandwidthMeter implements BandwidthMeter {
 
-    private final HardwareAbstractionLayer hal;
+    private static final long REFRESH_NANOS = 5L * 60L * 1_000_000_000L;
+
+    private volatile HardwareAbstractionLayer hal;
+    private volatile NetworkIF[] selected;
+    private volatile long enumeratedAt = System.nanoTime();
+    private final AtomicBoolean enumerating = new AtomicBoolean(false);
+
+    private NetworkIF[] prevInterfaces;
     private Snapshot prev;
 
-    public OshiBandwidthMeter() {
-        this.hal = new SystemInfo().getHardware();
+    @Override
+    public boolean init(PluginBase plugin) {
+        if (!BandwidthMeter.hostScope(plugin) || Files.exists(Path.of("/proc/net/dev"))) return false;
+        enumerateAsync();
+        return true;
     }
 
     @Override
-    public synchronized Result sampleKbps() {
-        Snapshot now = readSnapshot();
-        if (now == null) return new Result(null, null);
+    public synchronized void sample(double[] out, int offset) {
+        out[offset] = Double.NaN;
+        out[offset + 1] = Double.NaN;
 
-        if (prev == null) {
+        if (System.nanoTime() - enumeratedAt > REFRESH_NANOS) enumerateAsync();
+        NetworkIF[] nifs = selected;
+        if (nifs == null) return;
+
+        Snapshot now = readSnapshot(nifs);
+        if (now == null) return;
+
+        // A different interface set changes the totals; restart the delta
+        if (prev == null || nifs != prevInterfaces) {
             prev = now;
-            return new Result(0.0, 0.0);
+            prevInterfaces = nifs;
+            out[offset] = 0.0;
+            out[offset + 1] = 0.0;
+            return;
         }
 
         double seconds = Math.max(0.001, (now.nanoTime - prev.nanoTime) / 1_000_000_000.0);
@@ -38,53 +71,86 @@ public final class OshiBandwidthMeter implements BandwidthMeter {
 
         prev = now;
 
-        if (dRx < 0 || dTx < 0) return new Result(0.0, 0.0);
+        if (dRx < 0 || dTx < 0) {
+            out[offset] = 0.0;
+            out[offset + 1] = 0.0;
+            return;
+        }
 
         double rxKbps = (dRx / seconds) * 8.0 / 1000.0;
         double txKbps = (dTx / seconds) * 8.0 / 1000.0;
 
-        if (rxKbps < 0) rxKbps = 0.0;
-        if (txKbps < 0) txKbps = 0.0;
-
-        return new Result(rxKbps, txKbps);
+        out[offset] = Math.max(0.0, rxKbps);
+        out[offset + 1] = Math.max(0.0, txKbps);
     }
 
-    private Snapshot readSnapshot() {
-        try {
-            List<NetworkIF> nifs = hal.getNetworkIFs();
-            if (nifs == null || nifs.isEmpty()) return null;
+    /**
+     * Builds SystemInfo (first call) and enumerates the interfaces on a daemon thread; at most one at a time.
+     */
+    private void enumerateAsync() {
+        if (!enumerating.compareAndSet(false, true)) return;
 
-            Totals filtered = sumNics(nifs, true);
-            if (!filtered.any) {
-                Totals all = sumNics(nifs, false);
-                return new Snapshot(System.nanoTime(), all.rxBytes, all.txBytes);
+        Thread t = new Thread(() -> {
+            try {
+                HardwareAbstractionLayer h = hal;
+                if (h == null) {
+                    h = new SystemInfo().getHardware();
+                    hal = h;
+                }
+                NetworkIF[] nifs = select(h.getNetworkIFs());
+                if (nifs != null && !sameNames(selected, nifs)) selected = nifs;
+            } catch (Throwable ignored) {
+                // keep the previous list (or stay unavailable)
+            } finally {
+                enumeratedAt = System.nanoTime();
+                enumerating.set(false);
             }
+        }, "BanBridge-OshiInit");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Interfaces that pass {@link #shouldIgnore}, or all of them if none does; null if there are none.
+     */
+    private static NetworkIF[] select(List<NetworkIF> nifs) {
+        if (nifs == null || nifs.isEmpty()) return null;
+
+        List<NetworkIF> kept = new ArrayList<>();
+        List<NetworkIF> all = new ArrayList<>();
+        for (NetworkIF nif : nifs) {
+            if (nif == null) continue;
+            all.add(nif);
+
+            String name = safeLower(nif.getName()); // <-- compatible replacement for getIfName()
+            String display = safeLower(nif.getDisplayName());
+            if (!shouldIgnore(name, display)) kept.add(nif);
+        }
+
+        List<NetworkIF> use = kept.isEmpty() ? all : kept;
+        return use.isEmpty() ? null : use.toArray(new NetworkIF[0]);
+    }
 
-            return new Snapshot(System.nanoTime(), filtered.rxBytes, filtered.txBytes);
-        } catch (Throwable ignored) {
-            return null;
+    private static boolean sameNames(NetworkIF[] a, NetworkIF[] b) {
+        if (a == null || a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!safeLower(a[i].getName()).equals(safeLower(b[i].getName()))) return false;
         }
+        return true;
     }
 
-    private static Totals sumNics(List<NetworkIF> nifs, boolean applyFilter) {
+    private static Snapshot readSnapshot(NetworkIF[] nifs) {
         long rx = 0L;
         long tx = 0L;
         boolean any = false;
 
         for (NetworkIF nif : nifs) {
-            if (nif == null) continue;
-
             try {
                 nif.updateAttributes();
             } catch (Throwable ignored) {
                 // ignore
             }
 
-            String name = safeLower(nif.getName()); // <-- compatible replacement for getIfName()
-            String display = safeLower(nif.getDisplayName());
-
-            if (applyFilter && shouldIgnore(name, display)) continue;
-
             long r = nif.getBytesRecv();
             long t = nif.getBytesSent();
             if (r < 0 || t < 0) continue;
@@ -94,7 +160,7 @@ public final class OshiBandwidthMeter implements BandwidthMeter {
             any = true;
         }
 
-        return new Totals(rx, tx, any);
+        return any ? new Snapshot(System.nanoTime(), rx, tx) : null;
     }
 
     private static boolean shouldIgnore(String nameLower, String displayLower) {
@@ -118,6 +184,4 @@ public final class OshiBandwidthMeter implements BandwidthMeter {
     }
 
     private record Snapshot(long nanoTime, long rxBytes, long txBytes) {}
-
-    private record Totals(long rxBytes, long txBytes, boolean any) {}
-}
\ No newline at end of file
+}
@@ -0,0 +1,213 @@
+package org.banbridge.stats;
+
+import cn.nukkit.Player;
+import cn.nukkit.Server;
+import cn.nukkit.plugin.PluginBase;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.socket.DatagramChannel;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bandwidth of this server only, counted on its RakNet UDP socket.
+ *
+ * The host-NIC meters ({@link LinuxBandwidthMeter}, {@link OshiBandwidthMeter}) include every process on
+ * the interface, which is useless when several servers share a host. Linux has no per-socket UDP byte
+ * counters (/proc/net/udp only has queue sizes and drops), so this meter puts a handler at the head of the
+ * pipeline of the server's Netty datagram channel(s): it sees every datagram as it leaves or enters the
+ * socket, i.e. after batching, compression and RakNet framing. The numbers are UDP payload bytes of this
+ * server (IP/UDP headers not included).
+ *
+ * The channel is not exposed by the Nukkit API; it is found by walking the fields of Server.getNetwork()
+ * (bounded depth and object count). Until it is found (the RakNet interface may start after onEnable) the
+ * samples are NaN (null in the payload); the search is retried every {@link #RETRY_NANOS}. Opt-in
+ * (metrics.networkScope: process); the handler does one LongAdder add per datagram, sample() turns the
+ * totals into rates since the previous sample (first sample 0.0 / 0.0).
+ */
+public final class PacketBandwidthMeter implements BandwidthMeter {
+
+    private static final String HANDLER_NAME = "banbridge-bandwidth";
+    private static final long RETRY_NANOS = 10L * 1_000_000_000L;
+    private static final int MAX_DEPTH = 6;
+    private static final int MAX_VISITED = 20_000;
+
+    private final LongAdder rxBytes = new LongAdder();
+    private final LongAdder txBytes = new LongAdder();
+    private final ByteCounter counter = new ByteCounter();
+
+    private Server server;
+    private final List<DatagramChannel> channels = new ArrayList<>();
+    private long nextAttachNanos;
+
+    private boolean sampled;
+    private long prevNanos;
+    private long prevRx;
+    private long prevTx;
+
+    @Override
+    public boolean init(PluginBase plugin) {
+        if (BandwidthMeter.hostScope(plugin)) return false;
+        server = plugin.getServer();
+        nextAttachNanos = System.nanoTime();
+        return true;
+    }
+
+    @Override
+    public synchronized void sample(double[] out, int offset) {
+        out[offset] = Double.NaN;
+        out[offset + 1] = Double.NaN;
+
+        long now = System.nanoTime();
+        if (channels.isEmpty()) {
+            if (now - nextAttachNanos < 0 || !attach()) return;
+        }
+
+        long rx = rxBytes.sum();
+        long tx = txBytes.sum();
+
+        boolean first = !sampled;
+        long dtNanos = now - prevNanos;
+        sampled = true;
+        prevNanos = now;
+        long dRx = rx - prevRx;
+        long dTx = tx - prevTx;
+        prevRx = rx;
+        prevTx = tx;
+
+        if (first) {
+            out[offset] = 0.0;
+            out[offset + 1] = 0.0;
+            return;
+        }
+
+        double seconds = Math.max(0.001, dtNanos / 1_000_000_000.0);
+        out[offset] = Math.max(0.0, (dRx / seconds) * 8.0 / 1000.0);
+        out[offset + 1] = Math.max(0.0, (dTx / seconds) * 8.0 / 1000.0);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (DatagramChannel ch : channels) {
+            try {
+                ch.pipeline().remove(counter);
+            } catch (RuntimeException ignored) {
+                // channel already closed
+            }
+        }
+        channels.clear();
+    }
+
+    // ----------------------------
+    // Channel lookup
+    // ----------------------------
+
+    /**
+     * Adds the counter to every open datagram channel reachable from the server's network.
+     */
+    private boolean attach() {
+        nextAttachNanos = System.nanoTime() + RETRY_NANOS;
+
+        List<DatagramChannel> found = new ArrayList<>();
+        try {
+            findChannels(server.getNetwork(), MAX_DEPTH, Collections.newSetFromMap(new IdentityHashMap<>()), found);
+        } catch (RuntimeException | LinkageError e) {
+            return false;
+        }
+
+        for (DatagramChannel ch : found) {
+            if (!ch.isOpen()) continue;
+            try {
+                // Left behind by a previous instance (plugin reload)
+                if (ch.pipeline().get(HANDLER_NAME) != null) ch.pipeline().remove(HANDLER_NAME);
+                ch.pipeline().addFirst(HANDLER_NAME, counter);
+                channels.add(ch);
+            } catch (RuntimeException ignored) {
+                // closed meanwhile
+            }
+        }
+        return !channels.isEmpty();
+    }
+
+    private static void findChannels(Object o, int depth, Set<Object> seen, List<DatagramChannel> out) {
+        if (o == null || depth < 0 || seen.size() >= MAX_VISITED || !seen.add(o)) return;
+        if (o instanceof DatagramChannel ch) {
+            out.add(ch);
+            return;
+        }
+        if (o instanceof Server || o instanceof Player) return;
+        if (o instanceof Map<?, ?> m) {
+            for (Object v : List.copyOf(m.values())) findChannels(v, depth - 1, seen, out);
+            return;
+        }
+        if (o instanceof Iterable<?> it) {
+            List<Object> items = new ArrayList<>();
+            it.forEach(items::add);
+            for (Object v : items) findChannels(v, depth - 1, seen, out);
+            return;
+        }
+
+        Class<?> type = o.getClass();
+        if (type.isArray()) {
+            if (type.getComponentType().isPrimitive()) return;
+            for (Object v : (Object[]) o) findChannels(v, depth - 1, seen, out);
+            return;
+        }
+        String name = type.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.") || name.startsWith("sun.")) {
+            return;
+        }
+
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) continue;
+                try {
+                    f.setAccessible(true);
+                    findChannels(f.get(o), depth - 1, seen, out);
+                } catch (RuntimeException | IllegalAccessException ignored) {
+                    // inaccessible field
+                }
+            }
+        }
+    }
+
+    // ----------------------------
+    // Handler
+    // ----------------------------
+
+    @ChannelHandler.Sharable
+    private final class ByteCounter extends ChannelDuplexHandler {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            int n = size(msg);
+            if (n > 0) rxBytes.add(n);
+            super.channelRead(ctx, msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            int n = size(msg);
+            if (n > 0) txBytes.add(n);
+            super.write(ctx, msg, promise);
+        }
+    }
+
+    private static int size(Object msg) {
+        if (msg instanceof ByteBufHolder holder) return holder.content().readableBytes();
+        if (msg instanceof ByteBuf buf) return buf.readableBytes();
+        return 0;
+    }
+}
@@ -0,0 +1,84 @@
+package org.banbridge.stats;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Re-readable /proc file: kept open, re-read from offset 0 (procfs regenerates the content) into a reused,
+ * growing buffer. Reads go through the native stack buffer of RandomAccessFile (chunks of at most 8 KiB),
+ * so a read allocates nothing once the buffer is large enough. Not thread-safe; callers synchronize.
+ */
+final class ProcFile {
+
+    private static final int READ_CHUNK = 8192;
+
+    private final Path path;
+    private RandomAccessFile file;
+    private byte[] buf;
+
+    ProcFile(Path path, int initialCapacity) {
+        this.path = path;
+        this.buf = new byte[Math.max(64, initialCapacity)];
+    }
+
+    boolean exists() {
+        return Files.isReadable(path);
+    }
+
+    /**
+     * @return number of valid bytes in {@link #buffer()}
+     */
+    int read() throws IOException {
+        try {
+            if (file == null) file = new RandomAccessFile(path.toFile(), "r");
+            file.seek(0L);
+
+            int len = 0;
+            while (true) {
+                if (len == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                int n = file.read(buf, len, Math.min(READ_CHUNK, buf.length - len));
+                if (n < 0) return len;
+                len += n;
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    byte[] buffer() {
+        return buf;
+    }
+
+    void close() {
+        try {
+            if (file != null) file.close();
+        } catch (IOException ignored) {
+            // ignore
+        }
+        file = null;
+    }
+
+    // ----------------------------
+    // In-place parsing helpers
+    // ----------------------------
+
+    static int indexOf(byte[] b, byte c, int from, int end) {
+        for (int i = from; i < end; i++) if (b[i] == c) return i;
+        return end;
+    }
+
+    static int skipSpaces(byte[] b, int pos, int end) {
+        while (pos < end && (b[pos] == ' ' || b[pos] == '\t')) pos++;
+        return pos;
+    }
+
+    static boolean startsWith(byte[] b, int pos, int end, byte[] prefix) {
+        if (pos + prefix.length > end) return false;
+        for (int i = 0; i < prefix.length; i++) if (b[pos + i] != prefix[i]) return false;
+        return true;
+    }
+}
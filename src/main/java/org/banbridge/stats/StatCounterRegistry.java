@@ -0,0 +1,97 @@
+package org.banbridge.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of named per-player stat counters.
+ *
+ * Every counter name is interned to a small dense integer ID, which indexes the per-player counter
+ * arrays in {@link StatsAccumulator}. Hot paths hold on to the ID and never touch the name again.
+ *
+ * Lifecycle:
+ * - register() during plugin startup.
+ * - The registry is sealed when a {@link StatsAccumulator} is created from it; the per-player arrays
+ *   are sized once and never grow.
+ */
+public final class StatCounterRegistry {
+
+    /**
+     * Built-in counters; these map onto the fixed fields of StatsBatchRequest.PlayerDelta.
+     */
+    public static final int PLAYTIME_SECONDS = 0;
+    public static final int KILLS = 1;
+    public static final int DEATHS = 2;
+
+    private static final int BUILTIN_COUNT = 3;
+
+    private final Map<String, Integer> idByName = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    private volatile boolean sealed;
+    private volatile String[] sealedNames;
+
+    public StatCounterRegistry() {
+        register("playtimeSeconds");
+        register("kills");
+        register("deaths");
+    }
+
+    /**
+     * Returns the ID for the given counter name, registering it if needed.
+     * Re-registering an existing name returns the same ID.
+     */
+    public synchronized int register(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("counter name must not be blank");
+        }
+        String key = name.trim();
+
+        Integer existing = idByName.get(key);
+        if (existing != null) return existing;
+
+        if (sealed) {
+            throw new IllegalStateException("registry is sealed; cannot register counter '" + key + "'");
+        }
+
+        int id = names.size();
+        names.add(key);
+        idByName.put(key, id);
+        return id;
+    }
+
+    /**
+     * @return the ID for a registered name, or -1 if unknown.
+     */
+    public int idOf(String name) {
+        if (name == null) return -1;
+        Integer id = idByName.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String nameOf(int id) {
+        String[] snapshot = sealedNames;
+        if (snapshot != null) return snapshot[id];
+        synchronized (this) {
+            return names.get(id);
+        }
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public static boolean isBuiltin(int id) {
+        return id >= 0 && id < BUILTIN_COUNT;
+    }
+
+    synchronized int seal() {
+        if (!sealed) {
+            sealedNames = names.toArray(new String[0]);
+            sealed = true;
+        }
+        return names.size();
+    }
+}
@@ -4,63 +4,116 @@ import cn.nukkit.utils.Logger;
 import org.banbridge.api.StatsBatchRequest;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Collects per-player deltas and can flush them as a batch to the backend.
  *
+ * Layout:
+ * - One {@link PlayerCounters} record per XUID in a single map (name + counters together).
+ * - Counters are identified by the dense IDs of a {@link StatCounterRegistry}; every record holds
+ *   two counter slots, each a dense array indexed by counter ID.
+ * - Writers add to the slot selected by the current epoch.
+ * - drainBatch() flips the epoch and drains the now inactive slot in one pass over the map.
+ *
  * Thread-safety:
- * - Uses concurrent maps + LongAdder.
- * - drainBatch() is safe to call periodically; it uses sumThenReset().
+ * - Writers never lock; counters are striped {@link LongAdder}s.
+ * - Draining is lossless: a slot is reduced by exactly the amount that was read, so late writers
+ *   that still hit the old slot are carried over to a later drain instead of being reset away.
+ * - drainBatch() is serialized; add/requeue may run concurrently from any thread.
+ *
+ * Hot path:
+ * - Event hooks should keep the {@link PlayerCounters} returned by {@link #markOnline} for the
+ *   session and call {@link PlayerCounters#add(int, long)} with a pre-registered ID. That is one
+ *   volatile read plus an uncontended LongAdder add: no map lookup, no allocation.
+ *
+ * Memory:
+ * - Records of offline players that stayed empty for {@link #DEFAULT_IDLE_DRAINS_BEFORE_EVICT}
+ *   consecutive drains are evicted. Evicted records are swept once more on the next drain,
+ *   so a writer that raced with the eviction does not lose its delta.
  */
 public final class StatsAccumulator {
 
     private static final String UNKNOWN_NAME = "Unknown";
 
+    private static final int DEFAULT_IDLE_DRAINS_BEFORE_EVICT = 3;
+
     private final Logger log;
+    private final StatCounterRegistry registry;
+    private final int counterCount;
+    private final int idleDrainsBeforeEvict;
+
+    private final Map<String, PlayerCounters> byXuid = new ConcurrentHashMap<>();
 
     /**
-     * Last known name for a given XUID (used for stats attribution and optional presence/offline naming).
+     * Writers use slot (epoch & 1); only drainBatch() flips it.
      */
-    private final Map<String, String> nameByXuid = new ConcurrentHashMap<>();
+    private volatile int epoch;
 
-    private final Map<String, LongAdder> playtime = new ConcurrentHashMap<>();
-    private final Map<String, LongAdder> kills = new ConcurrentHashMap<>();
-    private final Map<String, LongAdder> deaths = new ConcurrentHashMap<>();
+    /**
+     * Records evicted by the previous drain (guarded by this).
+     */
+    private List<PlayerCounters> evicted = new ArrayList<>();
 
     public StatsAccumulator(Logger log) {
+        this(log, new StatCounterRegistry());
+    }
+
+    public StatsAccumulator(Logger log, StatCounterRegistry registry) {
+        this(log, registry, DEFAULT_IDLE_DRAINS_BEFORE_EVICT);
+    }
+
+    public StatsAccumulator(Logger log, StatCounterRegistry registry, int idleDrainsBeforeEvict) {
         this.log = log;
+        this.registry = registry;
+        this.counterCount = registry.seal();
+        this.idleDrainsBeforeEvict = Math.max(1, idleDrainsBeforeEvict);
     }
 
-    public void markOnline(String xuid, String name) {
-        putNameIfPresent(xuid, name);
+    public StatCounterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Marks the player online (protects the record from eviction) and returns the record,
+     * which callers may keep as a lookup-free handle for the rest of the session.
+     */
+    public PlayerCounters markOnline(String xuid, String name) {
+        if (xuid == null) return null;
+        PlayerCounters rec = byXuid.compute(xuid, (k, existing) -> {
+            PlayerCounters r = (existing == null) ? new PlayerCounters(k) : existing;
+            r.online = true;
+            return r;
+        });
+        rec.updateName(name);
+        return rec;
     }
 
     public void markOffline(String xuid) {
-        // reserved for future per-session logic (currently no-op)
+        if (xuid == null) return;
+        PlayerCounters rec = byXuid.get(xuid);
+        if (rec != null) rec.online = false;
     }
 
     public void addPlaytimeDelta(String xuid, String name, long seconds) {
-        if (xuid == null || seconds <= 0) return;
-        putNameIfPresent(xuid, name);
-        playtime.computeIfAbsent(xuid, k -> new LongAdder()).add(seconds);
+        add(xuid, name, StatCounterRegistry.PLAYTIME_SECONDS, seconds);
     }
 
     public void addKillDelta(String xuid, String name, long delta) {
-        if (xuid == null || delta <= 0) return;
-        putNameIfPresent(xuid, name);
-        kills.computeIfAbsent(xuid, k -> new LongAdder()).add(delta);
+        add(xuid, name, StatCounterRegistry.KILLS, delta);
     }
 
     public void addDeathDelta(String xuid, String name, long delta) {
+        add(xuid, name, StatCounterRegistry.DEATHS, delta);
+    }
+
+    public void add(String xuid, String name, int counterId, long delta) {
         if (xuid == null || delta <= 0) return;
-        putNameIfPresent(xuid, name);
-        deaths.computeIfAbsent(xuid, k -> new LongAdder()).add(delta);
+        record(xuid, name).add(counterId, delta);
     }
 
     /**
@@ -68,29 +121,69 @@ public final class StatsAccumulator {
      */
     public String getLastKnownNameOrUnknown(String xuid) {
         if (xuid == null) return UNKNOWN_NAME;
-        String name = nameByXuid.get(xuid);
-        if (name == null) return UNKNOWN_NAME;
-        String t = name.trim();
-        return t.isEmpty() ? UNKNOWN_NAME : t;
+        PlayerCounters rec = byXuid.get(xuid);
+        return rec == null ? UNKNOWN_NAME : rec.nameOrUnknown();
+    }
+
+    /**
+     * Number of per-player records currently held (online players + pending deltas + idle grace).
+     */
+    public int trackedPlayers() {
+        return byXuid.size();
     }
 
-    public StatsBatchRequest drainBatch() {
+    /**
+     * Non-destructive view of every pending delta (both slots, including records evicted last drain).
+     * Used for checkpointing; serialized with drainBatch() so a delta is never seen twice or not at all
+     * by a snapshot taken between two drains.
+     */
+    public synchronized List<StatsBatchRequest.PlayerDelta> snapshot() {
         List<StatsBatchRequest.PlayerDelta> players = new ArrayList<>();
+        long[] scratch = new long[counterCount];
 
-        Set<String> xuids = new HashSet<>();
-        xuids.addAll(playtime.keySet());
-        xuids.addAll(kills.keySet());
-        xuids.addAll(deaths.keySet());
+        for (PlayerCounters rec : evicted) {
+            if (rec.readInto(0, scratch, false, false) | rec.readInto(1, scratch, true, false)) {
+                players.add(toDelta(rec, scratch));
+            }
+        }
+        for (PlayerCounters rec : byXuid.values()) {
+            if (rec.readInto(0, scratch, false, false) | rec.readInto(1, scratch, true, false)) {
+                players.add(toDelta(rec, scratch));
+            }
+        }
+        return players;
+    }
 
-        for (String xuid : xuids) {
-            long pt = sumThenReset(playtime.get(xuid));
-            long k = sumThenReset(kills.get(xuid));
-            long d = sumThenReset(deaths.get(xuid));
+    public synchronized StatsBatchRequest drainBatch() {
+        int drainSlot = epoch & 1;
+        epoch = drainSlot ^ 1;
 
-            if (pt == 0 && k == 0 && d == 0) continue;
+        List<StatsBatchRequest.PlayerDelta> players = new ArrayList<>();
+        long[] scratch = new long[counterCount];
 
-            String name = getLastKnownNameOrUnknown(xuid);
-            players.add(new StatsBatchRequest.PlayerDelta(xuid, name, pt, k, d));
+        // Stragglers that hit a record after it was evicted last time: sweep both slots, then drop.
+        if (!evicted.isEmpty()) {
+            for (PlayerCounters rec : evicted) {
+                boolean any = rec.readInto(0, scratch, false, true) | rec.readInto(1, scratch, true, true);
+                if (any) players.add(toDelta(rec, scratch));
+            }
+            evicted = new ArrayList<>();
+        }
+
+        for (PlayerCounters rec : byXuid.values()) {
+            if (rec.readInto(drainSlot, scratch, false, true)) {
+                rec.idleDrains = 0;
+                players.add(toDelta(rec, scratch));
+                continue;
+            }
+
+            if (rec.online || ++rec.idleDrains < idleDrainsBeforeEvict) continue;
+            if (!rec.isSlotEmpty(drainSlot ^ 1)) continue;
+
+            PlayerCounters after = byXuid.computeIfPresent(rec.xuid, (k, r) -> (r == rec && !r.online) ? null : r);
+            if (after == null) {
+                evicted.add(rec);
+            }
         }
 
         return new StatsBatchRequest(players);
@@ -101,28 +194,140 @@ public final class StatsAccumulator {
             if (batch == null || batch.players() == null) return;
 
             for (StatsBatchRequest.PlayerDelta p : batch.players()) {
-                if (p == null) continue;
-                addPlaytimeDelta(p.xuid(), p.name(), p.playtimeDeltaSeconds());
-                addKillDelta(p.xuid(), p.name(), p.killsDelta());
-                addDeathDelta(p.xuid(), p.name(), p.deathsDelta());
+                if (p == null || p.xuid() == null) continue;
+                PlayerCounters rec = record(p.xuid(), p.name());
+                rec.add(StatCounterRegistry.PLAYTIME_SECONDS, p.playtimeDeltaSeconds());
+                rec.add(StatCounterRegistry.KILLS, p.killsDelta());
+                rec.add(StatCounterRegistry.DEATHS, p.deathsDelta());
+
+                if (p.counters() == null) continue;
+                for (Map.Entry<String, Long> c : p.counters().entrySet()) {
+                    int id = registry.idOf(c.getKey());
+                    if (id < 0 || c.getValue() == null) {
+                        log.warning("Dropping requeued delta for unknown stat counter: " + c.getKey());
+                        continue;
+                    }
+                    rec.add(id, c.getValue());
+                }
             }
         } catch (Exception e) {
             log.warning("Failed to requeue stats batch: " + e.getMessage());
         }
     }
 
-    private void putNameIfPresent(String xuid, String name) {
-        if (xuid == null) return;
-        if (name == null) return;
+    private PlayerCounters record(String xuid, String name) {
+        PlayerCounters rec = byXuid.get(xuid);
+        if (rec == null) rec = byXuid.computeIfAbsent(xuid, PlayerCounters::new);
+        rec.updateName(name);
+        return rec;
+    }
 
-        String t = name.trim();
-        if (t.isEmpty()) return;
+    private StatsBatchRequest.PlayerDelta toDelta(PlayerCounters rec, long[] values) {
+        Map<String, Long> extra = null;
+        for (int id = 0; id < values.length; id++) {
+            if (StatCounterRegistry.isBuiltin(id) || values[id] == 0) continue;
+            if (extra == null) extra = new HashMap<>();
+            extra.put(registry.nameOf(id), values[id]);
+        }
+
+        return new StatsBatchRequest.PlayerDelta(
+                rec.xuid,
+                rec.nameOrUnknown(),
+                values[StatCounterRegistry.PLAYTIME_SECONDS],
+                values[StatCounterRegistry.KILLS],
+                values[StatCounterRegistry.DEATHS],
+                extra
+        );
+    }
 
-        nameByXuid.put(xuid, t);
+    /**
+     * Reads the adder and subtracts exactly what was read; concurrent adds are kept.
+     */
+    private static long take(LongAdder adder) {
+        long v = adder.sum();
+        if (v != 0) adder.add(-v);
+        return v;
     }
 
-    private static long sumThenReset(LongAdder adder) {
-        if (adder == null) return 0;
-        return adder.sumThenReset();
+    /**
+     * Per-player counters for one XUID. Obtained from {@link #markOnline}; safe to share across threads.
+     */
+    public final class PlayerCounters {
+        private final String xuid;
+        private final LongAdder[][] slots = {newSlot(), newSlot()};
+
+        /**
+         * Last known name (used for stats attribution and optional presence/offline naming).
+         */
+        private volatile String name;
+        private volatile boolean online;
+
+        /**
+         * Consecutive drains without any delta (drain-thread only).
+         */
+        private int idleDrains;
+
+        private PlayerCounters(String xuid) {
+            this.xuid = xuid;
+        }
+
+        public String xuid() {
+            return xuid;
+        }
+
+        /**
+         * Adds a positive delta to a registered counter. Non-positive deltas are ignored.
+         */
+        public void add(int counterId, long delta) {
+            if (delta <= 0) return;
+            slots[epoch & 1][counterId].add(delta);
+        }
+
+        public void increment(int counterId) {
+            slots[epoch & 1][counterId].increment();
+        }
+
+        void updateName(String candidate) {
+            if (candidate == null) return;
+            String current = name;
+            if (candidate.equals(current)) return;
+
+            String t = candidate.trim();
+            if (t.isEmpty() || t.equals(current)) return;
+            name = t;
+        }
+
+        String nameOrUnknown() {
+            String n = name;
+            return n == null ? UNKNOWN_NAME : n;
+        }
+
+        /**
+         * Reads one slot into out (adding when accumulate is set), draining it when consume is set.
+         * Returns true if anything in out is non-zero.
+         */
+        private boolean readInto(int slot, long[] out, boolean accumulate, boolean consume) {
+            LongAdder[] counters = slots[slot];
+            boolean any = false;
+            for (int i = 0; i < counters.length; i++) {
+                long v = consume ? take(counters[i]) : counters[i].sum();
+                out[i] = accumulate ? out[i] + v : v;
+                if (out[i] != 0) any = true;
+            }
+            return any;
+        }
+
+        private boolean isSlotEmpty(int slot) {
+            for (LongAdder a : slots[slot]) {
+                if (a.sum() != 0) return false;
+            }
+            return true;
+        }
+
+        private LongAdder[] newSlot() {
+            LongAdder[] counters = new LongAdder[counterCount];
+            for (int i = 0; i < counters.length; i++) counters[i] = new LongAdder();
+            return counters;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+package org.banbridge.stats;
+
+import cn.nukkit.utils.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.banbridge.api.StatsBatchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Local checkpoint of stats deltas that have not been acknowledged by the backend yet.
+ *
+ * File format: compact JSON (no pretty printing), written to a temp file and atomically moved
+ * into place, same as the ban cache.
+ *
+ * Cost: write() skips the disk entirely if the pending set is unchanged since the last write,
+ * and deletes the file once nothing is pending, so running it every few seconds is cheap.
+ *
+ * Semantics: at-least-once. Deltas acknowledged after the last checkpoint but before a crash are
+ * replayed once more on the next start; the window is bounded by the checkpoint interval.
+ *
+ * Writes are serialized, and {@link #writeFinal} closes the checkpoint: a periodic write whose snapshot
+ * was taken before shutdown can no longer replace the final file with older deltas (which would then be
+ * replayed twice).
+ */
+public final class StatsCheckpoint {
+
+    private final Path file;
+    private final Logger log;
+    private final ObjectMapper om = new ObjectMapper();
+
+    /**
+     * Last content written (or confirmed absent); guarded by this.
+     */
+    private List<StatsBatchRequest.PlayerDelta> lastWritten = List.of();
+    private boolean closed;
+
+    public StatsCheckpoint(Path file, Logger log) {
+        this.file = file;
+        this.log = log;
+    }
+
+    /**
+     * Loads a checkpoint left by a previous run and requeues it into the accumulator.
+     * The file is kept until the next write() supersedes it.
+     */
+    public synchronized int replayInto(StatsAccumulator stats) {
+        try {
+            if (!Files.exists(file)) return 0;
+
+            CheckpointFile cf = om.readValue(Files.readAllBytes(file), CheckpointFile.class);
+            if (cf.players == null || cf.players.isEmpty()) return 0;
+
+            stats.requeue(new StatsBatchRequest(cf.players));
+            lastWritten = cf.players;
+            log.info("Replayed stats checkpoint: " + cf.players.size() + " player deltas (written " + cf.writtenAt + ")");
+            return cf.players.size();
+        } catch (Exception e) {
+            log.warning("Failed to replay stats checkpoint: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Last write on shutdown; later write() calls are ignored.
+     */
+    public synchronized void writeFinal(List<StatsBatchRequest.PlayerDelta> pending) {
+        write(pending);
+        closed = true;
+    }
+
+    public synchronized void write(List<StatsBatchRequest.PlayerDelta> pending) {
+        if (closed) return;
+        List<StatsBatchRequest.PlayerDelta> players = (pending == null) ? List.of() : pending;
+        if (players.equals(lastWritten)) return;
+
+        try {
+            if (players.isEmpty()) {
+                Files.deleteIfExists(file);
+                lastWritten = List.of();
+                return;
+            }
+
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName().toString() + ".tmp");
+
+            CheckpointFile cf = new CheckpointFile();
+            cf.writtenAt = Instant.now().toString();
+            cf.players = players;
+
+            Files.write(tmp, om.writeValueAsBytes(cf));
+
+            try {
+                Files.move(tmp, file,
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                        java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException atomicNotSupported) {
+                Files.move(tmp, file,
+                        java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            lastWritten = players;
+        } catch (Exception e) {
+            log.warning("Failed to write stats checkpoint: " + e.getMessage());
+        }
+    }
+
+    public static final class CheckpointFile {
+        public String writtenAt;
+        public List<StatsBatchRequest.PlayerDelta> players;
+    }
+}
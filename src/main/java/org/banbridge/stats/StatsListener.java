@@ -0,0 +1,202 @@
+package org.banbridge.stats;
+
+import cn.nukkit.Player;
+import cn.nukkit.entity.Entity;
+import cn.nukkit.event.EventHandler;
+import cn.nukkit.event.EventPriority;
+import cn.nukkit.event.Listener;
+import cn.nukkit.event.block.BlockBreakEvent;
+import cn.nukkit.event.block.BlockPlaceEvent;
+import cn.nukkit.event.entity.EntityDamageByEntityEvent;
+import cn.nukkit.event.player.PlayerChatEvent;
+import cn.nukkit.event.player.PlayerDeathEvent;
+import cn.nukkit.event.player.PlayerJoinEvent;
+import cn.nukkit.event.player.PlayerMoveEvent;
+import cn.nukkit.event.player.PlayerQuitEvent;
+import cn.nukkit.level.Location;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Nukkit event hooks feeding {@link StatsAccumulator}.
+ *
+ * Per-event cost budget: some of these events (move, damage, block) fire thousands of times per tick,
+ * so a hook must stay constant-time and must not allocate. A hook does one session lookup by UUID and
+ * one {@link StatsAccumulator.PlayerCounters#add} with a pre-resolved counter ID; XUID resolution
+ * (reflective) only happens on join.
+ *
+ * Extended counters are only tracked if registered before the accumulator was created
+ * (see {@link #registerExtendedCounters}); unregistered hooks return immediately.
+ */
+public final class StatsListener implements Listener {
+
+    public static final String BLOCKS_PLACED = "blocksPlaced";
+    public static final String BLOCKS_BROKEN = "blocksBroken";
+    public static final String DAMAGE_DEALT = "damageDealt";
+    public static final String DAMAGE_TAKEN = "damageTaken";
+    public static final String CHAT_MESSAGES = "chatMessages";
+    public static final String DISTANCE_TRAVELLED_CM = "distanceTravelledCm";
+
+    /**
+     * Moves longer than this (squared, in blocks) are teleports and not counted as travel.
+     */
+    private static final double MAX_MOVE_DISTANCE_SQ = 16.0 * 16.0;
+
+    private final StatsAccumulator stats;
+    private final Function<Player, String> xuidResolver;
+
+    private final Map<UUID, StatsAccumulator.PlayerCounters> sessions = new ConcurrentHashMap<>();
+
+    private final int blocksPlaced;
+    private final int blocksBroken;
+    private final int damageDealt;
+    private final int damageTaken;
+    private final int chatMessages;
+    private final int distanceTravelledCm;
+
+    public StatsListener(StatsAccumulator stats, Function<Player, String> xuidResolver) {
+        this.stats = stats;
+        this.xuidResolver = xuidResolver;
+
+        StatCounterRegistry registry = stats.registry();
+        this.blocksPlaced = registry.idOf(BLOCKS_PLACED);
+        this.blocksBroken = registry.idOf(BLOCKS_BROKEN);
+        this.damageDealt = registry.idOf(DAMAGE_DEALT);
+        this.damageTaken = registry.idOf(DAMAGE_TAKEN);
+        this.chatMessages = registry.idOf(CHAT_MESSAGES);
+        this.distanceTravelledCm = registry.idOf(DISTANCE_TRAVELLED_CM);
+    }
+
+    /**
+     * Registers all counters this listener can feed. Must run before the accumulator is created.
+     */
+    public static void registerExtendedCounters(StatCounterRegistry registry) {
+        registry.register(BLOCKS_PLACED);
+        registry.register(BLOCKS_BROKEN);
+        registry.register(DAMAGE_DEALT);
+        registry.register(DAMAGE_TAKEN);
+        registry.register(CHAT_MESSAGES);
+        registry.register(DISTANCE_TRAVELLED_CM);
+    }
+
+    // ----------------------------
+    // Session lifecycle
+    // ----------------------------
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        session(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        Player p = event.getPlayer();
+        StatsAccumulator.PlayerCounters rec = sessions.remove(p.getUniqueId());
+        String xuid = (rec != null) ? rec.xuid() : xuidResolver.apply(p);
+        stats.markOffline(xuid);
+    }
+
+    // ----------------------------
+    // Built-in counters
+    // ----------------------------
+
+    @EventHandler
+    public void onDeath(PlayerDeathEvent event) {
+        Player victim = event.getEntity();
+        StatsAccumulator.PlayerCounters v = session(victim);
+        if (v != null) v.increment(StatCounterRegistry.DEATHS);
+
+        Player killer = null;
+        try {
+            killer = (Player) victim.getKiller();
+        } catch (Throwable ignored) {
+            // keep null
+        }
+
+        if (killer != null) {
+            StatsAccumulator.PlayerCounters k = session(killer);
+            if (k != null) k.increment(StatCounterRegistry.KILLS);
+        }
+    }
+
+    // ----------------------------
+    // Extended counters
+    // ----------------------------
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        if (blocksPlaced < 0) return;
+        StatsAccumulator.PlayerCounters rec = sessions.get(event.getPlayer().getUniqueId());
+        if (rec != null) rec.increment(blocksPlaced);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        if (blocksBroken < 0) return;
+        StatsAccumulator.PlayerCounters rec = sessions.get(event.getPlayer().getUniqueId());
+        if (rec != null) rec.increment(blocksBroken);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDamage(EntityDamageByEntityEvent event) {
+        if (damageDealt < 0 && damageTaken < 0) return;
+
+        long amount = Math.round(event.getFinalDamage());
+        if (amount <= 0) return;
+
+        if (damageDealt >= 0 && event.getDamager() instanceof Player attacker) {
+            StatsAccumulator.PlayerCounters rec = sessions.get(attacker.getUniqueId());
+            if (rec != null) rec.add(damageDealt, amount);
+        }
+
+        Entity target = event.getEntity();
+        if (damageTaken >= 0 && target instanceof Player victim) {
+            StatsAccumulator.PlayerCounters rec = sessions.get(victim.getUniqueId());
+            if (rec != null) rec.add(damageTaken, amount);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onChat(PlayerChatEvent event) {
+        if (chatMessages < 0) return;
+        StatsAccumulator.PlayerCounters rec = sessions.get(event.getPlayer().getUniqueId());
+        if (rec != null) rec.increment(chatMessages);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        if (distanceTravelledCm < 0) return;
+
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (from == null || to == null || from.getLevel() != to.getLevel()) return;
+
+        double d2 = from.distanceSquared(to);
+        if (d2 <= 0.0 || d2 > MAX_MOVE_DISTANCE_SQ) return;
+
+        StatsAccumulator.PlayerCounters rec = sessions.get(event.getPlayer().getUniqueId());
+        if (rec != null) rec.add(distanceTravelledCm, (long) (Math.sqrt(d2) * 100.0));
+    }
+
+    // ----------------------------
+    // Helpers
+    // ----------------------------
+
+    private StatsAccumulator.PlayerCounters session(Player p) {
+        if (p == null) return null;
+
+        UUID id = p.getUniqueId();
+        StatsAccumulator.PlayerCounters rec = (id == null) ? null : sessions.get(id);
+        if (rec != null) return rec;
+
+        String xuid = xuidResolver.apply(p);
+        if (xuid == null) return null;
+
+        rec = stats.markOnline(xuid, p.getName());
+        if (id != null) sessions.put(id, rec);
+        return rec;
+    }
+}
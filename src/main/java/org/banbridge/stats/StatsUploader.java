@@ -0,0 +1,221 @@
+package org.banbridge.stats;
+
+import cn.nukkit.utils.Logger;
+import org.banbridge.api.BackendClient;
+import org.banbridge.api.StatsBatchRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uploads drained stats in bounded chunks with a small pipeline window.
+ *
+ * - A drain is split into chunks of at most maxPlayers players and ~maxBytes of JSON.
+ * - Up to maxInFlight chunks are posted concurrently; each ACK immediately releases the next chunk,
+ *   so a large backlog drains as fast as the backend accepts it instead of waiting for the next flush.
+ * - A failed chunk is requeued into the accumulator on its own. The chunks not yet sent are requeued too,
+ *   so a backend outage does not keep a growing queue here; completed chunks stay completed.
+ *
+ * Thread-safety: flush() runs on the scheduler; ACK callbacks run on HttpClient threads. All queue state
+ * is guarded by this. Deltas move between the accumulator and the queues only while holding this, so
+ * {@link #snapshotUnacked()} always sees every unacknowledged delta exactly once.
+ */
+public final class StatsUploader {
+
+    /**
+     * Rough JSON size of one PlayerDelta without xuid/name/counters ({"xuid":"","name":"",...}).
+     */
+    private static final int DELTA_BASE_BYTES = 110;
+    private static final int COUNTER_ENTRY_BYTES = 24;
+
+    private final BackendClient backendClient;
+    private final StatsAccumulator stats;
+    private final Logger log;
+
+    private final int maxPlayers;
+    private final int maxBytes;
+    private final int maxInFlight;
+
+    private final ArrayDeque<StatsBatchRequest> pending = new ArrayDeque<>();
+    private final List<StatsBatchRequest> inFlightChunks = new ArrayList<>();
+    private int inFlight;
+    private boolean failedThisRound;
+    private int failedChunks;
+
+    public StatsUploader(BackendClient backendClient, StatsAccumulator stats, Logger log,
+                         int maxPlayers, int maxBytes, int maxInFlight) {
+        this.backendClient = backendClient;
+        this.stats = stats;
+        this.log = log;
+        this.maxPlayers = Math.max(1, maxPlayers);
+        this.maxBytes = Math.max(1024, maxBytes);
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Drains the accumulator and starts uploading. No-op while a previous round is still in progress;
+     * new deltas simply stay in the accumulator until then.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (inFlight > 0 || !pending.isEmpty()) return;
+            failedThisRound = false;
+
+            StatsBatchRequest batch = stats.drainBatch();
+            if (batch.players() == null || batch.players().isEmpty()) return;
+
+            pending.addAll(split(batch.players()));
+        }
+        pump();
+    }
+
+    public synchronized boolean isIdle() {
+        return inFlight == 0 && pending.isEmpty();
+    }
+
+    /**
+     * Chunks drained from the accumulator but not yet acknowledged (queued + in flight).
+     */
+    public synchronized int pendingChunks() {
+        return pending.size() + inFlight;
+    }
+
+    /**
+     * Every delta not yet acknowledged: still in the accumulator, queued here, or in flight.
+     */
+    public synchronized List<StatsBatchRequest.PlayerDelta> snapshotUnacked() {
+        List<StatsBatchRequest.PlayerDelta> all = stats.snapshot();
+        for (StatsBatchRequest b : inFlightChunks) all.addAll(b.players());
+        for (StatsBatchRequest b : pending) all.addAll(b.players());
+        return all;
+    }
+
+    /**
+     * Uploads everything pending, blocking until all of it is acknowledged, an upload started by this call
+     * fails, or the timeout expires. Intended for shutdown; a failure of an earlier periodic round does not
+     * prevent the attempt.
+     *
+     * @return true if nothing is left unacknowledged
+     */
+    public boolean flushAndWait(long timeoutMillis) {
+        long deadline = System.nanoTime() + Math.max(0, timeoutMillis) * 1_000_000L;
+        int failuresBefore = -1; // before the first own flush()
+
+        while (true) {
+            if (!awaitIdle(deadline)) return false;
+
+            synchronized (this) {
+                if (failuresBefore >= 0 && failedChunks != failuresBefore) return false;
+            }
+            if (stats.snapshot().isEmpty()) return true;
+            if (System.nanoTime() >= deadline) return false;
+
+            synchronized (this) {
+                failuresBefore = failedChunks;
+            }
+            flush();
+        }
+    }
+
+    private synchronized boolean awaitIdle(long deadlineNanos) {
+        while (!isIdle()) {
+            long remainingMillis = (deadlineNanos - System.nanoTime()) / 1_000_000L;
+            if (remainingMillis <= 0) return false;
+            try {
+                wait(remainingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void pump() {
+        while (true) {
+            StatsBatchRequest chunk;
+            synchronized (this) {
+                if (inFlight >= maxInFlight || pending.isEmpty()) return;
+                chunk = pending.poll();
+                inFlightChunks.add(chunk);
+                inFlight++;
+            }
+            send(chunk);
+        }
+    }
+
+    private void send(StatsBatchRequest chunk) {
+        backendClient.postStatsBatchAsync(chunk, ok -> {
+            if (ok) {
+                synchronized (this) {
+                    inFlightChunks.remove(chunk);
+                    inFlight--;
+                    notifyAll();
+                }
+                pump();
+                return;
+            }
+
+            int players;
+            boolean firstFailure;
+            synchronized (this) {
+                inFlightChunks.remove(chunk);
+                inFlight--;
+
+                stats.requeue(chunk);
+                players = chunk.players().size();
+                for (StatsBatchRequest b : pending) {
+                    stats.requeue(b);
+                    players += b.players().size();
+                }
+                pending.clear();
+
+                firstFailure = !failedThisRound;
+                failedThisRound = true;
+                failedChunks++;
+                notifyAll();
+            }
+
+            if (firstFailure) {
+                log.warning("Stats upload failed; requeued " + players + " player deltas, will retry later.");
+            }
+        });
+    }
+
+    private List<StatsBatchRequest> split(List<StatsBatchRequest.PlayerDelta> players) {
+        List<StatsBatchRequest> chunks = new ArrayList<>();
+        List<StatsBatchRequest.PlayerDelta> current = new ArrayList<>();
+        int currentBytes = 0;
+
+        for (StatsBatchRequest.PlayerDelta p : players) {
+            int bytes = estimateBytes(p);
+            if (!current.isEmpty() && (current.size() >= maxPlayers || currentBytes + bytes > maxBytes)) {
+                chunks.add(new StatsBatchRequest(current));
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(p);
+            currentBytes += bytes;
+        }
+
+        if (!current.isEmpty()) chunks.add(new StatsBatchRequest(current));
+        return chunks;
+    }
+
+    private static int estimateBytes(StatsBatchRequest.PlayerDelta p) {
+        int bytes = DELTA_BASE_BYTES + length(p.xuid()) + length(p.name());
+        Map<String, Long> counters = p.counters();
+        if (counters != null) {
+            for (String name : counters.keySet()) {
+                bytes += COUNTER_ENTRY_BYTES + length(name);
+            }
+        }
+        return bytes;
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
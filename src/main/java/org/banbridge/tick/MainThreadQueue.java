@@ -0,0 +1,63 @@
+package org.banbridge.tick;
+
+import cn.nukkit.utils.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Multi-producer / single-consumer handoff from background threads (HttpClient callbacks) to the
+ * server main thread.
+ *
+ * - submit() may be called from any thread.
+ * - drain() is called once per tick by a single repeating sync task and runs queued work until the
+ *   queue is empty or the per-tick time budget is used up; leftovers run on the next tick.
+ * - At least one task runs per tick, so a single task larger than the budget cannot starve the queue.
+ *
+ * This keeps all Nukkit state access (online players, kicks, messages) confined to the main thread
+ * and replaces one scheduler task per action with one queue node.
+ */
+public final class MainThreadQueue {
+
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final Logger log;
+    private final long budgetNanos;
+
+    public MainThreadQueue(Logger log, long budgetMicros) {
+        this.log = log;
+        this.budgetNanos = Math.max(100L, budgetMicros) * 1_000L;
+    }
+
+    public void submit(Runnable task) {
+        if (task != null) queue.offer(task);
+    }
+
+    /**
+     * Main thread only.
+     *
+     * @return number of tasks executed
+     */
+    public int drain() {
+        if (queue.isEmpty()) return 0;
+
+        long deadline = System.nanoTime() + budgetNanos;
+        int ran = 0;
+
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warning("Main-thread task failed: " + t.getClass().getSimpleName() + ": " + t.getMessage());
+            }
+            ran++;
+
+            if (System.nanoTime() - deadline >= 0) break;
+        }
+        return ran;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,301 @@
+package org.banbridge.tick;
+
+import org.banbridge.api.ServerMetricsRequest;
+import org.banbridge.log.BridgeLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Detects main-thread stalls from outside the scheduler and records what the main thread was doing.
+ *
+ * - beat() is called by the per-tick task (one volatile write).
+ * - A daemon thread checks the heartbeat; once it is older than the threshold, the main thread's stack
+ *   is sampled every sampleInterval until ticks resume.
+ * - Samples are folded into a collapsed-stack profile ("root;...;leaf count", flamegraph.pl input) and
+ *   each sample is attributed to an owner: the plugin whose package is closest to the leaf, otherwise
+ *   the leaf frame's package (e.g. "cn.nukkit.level"). BanBridge's own tasks map to the BanBridge plugin.
+ * - Finished stalls are logged, queued for the next metrics push (bounded) and optionally written to
+ *   dumpDir as .collapsed files (oldest removed beyond MAX_DUMP_FILES).
+ */
+public final class StallWatchdog {
+
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_STACKS = 256;
+    private static final int MAX_SAMPLES = 3_000;
+    private static final int MAX_PENDING = 4;
+    private static final int REPORT_STACKS = 20;
+    private static final int MAX_DUMP_FILES = 20;
+
+    private static final DateTimeFormatter FILE_TS =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final Thread mainThread;
+    private final long thresholdNanos;
+    private final long sampleIntervalMillis;
+    private final Supplier<Map<String, String>> pluginPackages;
+    private final Path dumpDir;
+    private final BridgeLog log;
+
+    private final ArrayDeque<ServerMetricsRequest.StallReport> pending = new ArrayDeque<>();
+
+    private volatile long lastBeatNanos;
+    private volatile boolean running;
+    private Thread watcher;
+
+    /**
+     * @param pluginPackages package prefix → plugin name, resolved when a stall ends
+     * @param dumpDir        directory for .collapsed files, or null to keep stalls in memory only
+     */
+    public StallWatchdog(Thread mainThread, long thresholdMillis, long sampleIntervalMillis,
+                         Supplier<Map<String, String>> pluginPackages, Path dumpDir, BridgeLog log) {
+        this.mainThread = mainThread;
+        this.thresholdNanos = Math.max(100L, thresholdMillis) * 1_000_000L;
+        this.sampleIntervalMillis = Math.max(1L, sampleIntervalMillis);
+        this.pluginPackages = pluginPackages;
+        this.dumpDir = dumpDir;
+        this.log = log;
+    }
+
+    /**
+     * Main thread, once per tick.
+     */
+    public void beat() {
+        lastBeatNanos = System.nanoTime();
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        watcher = new Thread(this::runWatcher, "BanBridge-Watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = watcher;
+            watcher = null;
+        }
+        if (t != null) t.interrupt();
+    }
+
+    /**
+     * Stalls finished since the previous call (oldest first); empty if none.
+     */
+    public List<ServerMetricsRequest.StallReport> drainReports() {
+        synchronized (pending) {
+            List<ServerMetricsRequest.StallReport> out = new ArrayList<>(pending);
+            pending.clear();
+            return out;
+        }
+    }
+
+    // ----------------------------
+    // Watcher thread
+    // ----------------------------
+
+    private void runWatcher() {
+        long idleSleep = Math.max(sampleIntervalMillis, Math.min(100L, thresholdNanos / 4_000_000L));
+        while (running) {
+            try {
+                long beat = lastBeatNanos;
+                if (beat != 0 && System.nanoTime() - beat > thresholdNanos) {
+                    sampleStall(beat);
+                } else {
+                    Thread.sleep(idleSleep);
+                }
+            } catch (InterruptedException e) {
+                if (!running) return;
+            } catch (Throwable t) {
+                log.warn("Watchdog", "Stall sampling failed", "err", t.toString());
+            }
+        }
+    }
+
+    private void sampleStall(long beat) throws InterruptedException {
+        long startedAtMillis = System.currentTimeMillis() - (System.nanoTime() - beat) / 1_000_000L;
+        Map<String, Integer> stacks = new HashMap<>();
+        Map<String, String[]> frames = new HashMap<>();
+        int samples = 0;
+        int dropped = 0;
+
+        while (running && lastBeatNanos == beat) {
+            if (samples < MAX_SAMPLES) {
+                StackTraceElement[] st = mainThread.getStackTrace();
+                if (st.length > 0) {
+                    String key = collapse(st);
+                    if (stacks.containsKey(key) || stacks.size() < MAX_STACKS) {
+                        stacks.merge(key, 1, Integer::sum);
+                        frames.computeIfAbsent(key, k -> classNames(st));
+                    } else {
+                        dropped++;
+                    }
+                    samples++;
+                }
+            }
+            Thread.sleep(sampleIntervalMillis);
+        }
+        if (lastBeatNanos == beat) return; // stopped during the stall
+
+        long durationMillis = (lastBeatNanos - beat) / 1_000_000L;
+        finish(startedAtMillis, durationMillis, samples, dropped, stacks, frames);
+    }
+
+    private void finish(long startedAtMillis, long durationMillis, int samples, int dropped,
+                        Map<String, Integer> stacks, Map<String, String[]> frames) {
+        Map<String, String> packages = resolvePackages();
+
+        Map<String, Integer> owners = new HashMap<>();
+        stacks.forEach((key, count) -> owners.merge(owner(frames.get(key), packages), count, Integer::sum));
+        if (dropped > 0) owners.merge("(unrecorded)", dropped, Integer::sum);
+
+        Map<String, Integer> ownersSorted = new LinkedHashMap<>();
+        owners.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEachOrdered(e -> ownersSorted.put(e.getKey(), e.getValue()));
+        String topOwner = ownersSorted.isEmpty() ? null : ownersSorted.keySet().iterator().next();
+
+        List<Map.Entry<String, Integer>> sorted = new ArrayList<>(stacks.entrySet());
+        sorted.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        List<String> collapsed = new ArrayList<>();
+        for (int i = 0; i < Math.min(REPORT_STACKS, sorted.size()); i++) {
+            collapsed.add(sorted.get(i).getKey() + " " + sorted.get(i).getValue());
+        }
+
+        ServerMetricsRequest.StallReport report = new ServerMetricsRequest.StallReport(
+                Instant.ofEpochMilli(startedAtMillis).toString(),
+                durationMillis,
+                samples,
+                topOwner,
+                ownersSorted,
+                collapsed
+        );
+        synchronized (pending) {
+            if (pending.size() >= MAX_PENDING) pending.pollFirst();
+            pending.addLast(report);
+        }
+
+        Path file = (dumpDir == null) ? null : writeDump(startedAtMillis, sorted);
+        log.warn("Watchdog", "Main thread stall",
+                "durationMs", durationMillis, "owner", topOwner, "samples", samples, "dump", file);
+    }
+
+    // ----------------------------
+    // Attribution
+    // ----------------------------
+
+    private Map<String, String> resolvePackages() {
+        try {
+            Map<String, String> m = pluginPackages.get();
+            return (m == null) ? Map.of() : m;
+        } catch (Throwable t) {
+            return Map.of();
+        }
+    }
+
+    /**
+     * The plugin with the longest matching package, checked from the leaf frame towards the root;
+     * otherwise the leaf frame's package (at most three segments).
+     */
+    static String owner(String[] classNames, Map<String, String> packages) {
+        if (classNames == null || classNames.length == 0) return "(unknown)";
+
+        for (String cls : classNames) {
+            String best = null;
+            int bestLen = -1;
+            for (Map.Entry<String, String> e : packages.entrySet()) {
+                String pkg = e.getKey();
+                if (pkg.length() > bestLen && cls.startsWith(pkg)
+                        && (cls.length() == pkg.length() || cls.charAt(pkg.length()) == '.')) {
+                    best = e.getValue();
+                    bestLen = pkg.length();
+                }
+            }
+            if (best != null) return best;
+        }
+        return packageOf(classNames[0], 3);
+    }
+
+    private static String packageOf(String className, int maxSegments) {
+        int end = className.lastIndexOf('.');
+        if (end < 0) return "(default)";
+        int dots = 0;
+        for (int i = 0; i < end; i++) {
+            if (className.charAt(i) == '.' && ++dots == maxSegments) return className.substring(0, i);
+        }
+        return className.substring(0, end);
+    }
+
+    private static String[] classNames(StackTraceElement[] st) {
+        int n = Math.min(MAX_DEPTH, st.length);
+        String[] out = new String[n];
+        for (int i = 0; i < n; i++) out[i] = st[i].getClassName();
+        return out;
+    }
+
+    /**
+     * root;...;leaf with "Class.method" frames; deeper stacks keep the MAX_DEPTH frames nearest the leaf.
+     */
+    private static String collapse(StackTraceElement[] st) {
+        int n = Math.min(MAX_DEPTH, st.length);
+        StringBuilder sb = new StringBuilder(n * 48);
+        for (int i = n - 1; i >= 0; i--) {
+            if (sb.length() > 0) sb.append(';');
+            String cls = st[i].getClassName();
+            sb.append(cls, cls.lastIndexOf('.') + 1, cls.length())
+                    .append('.').append(st[i].getMethodName());
+        }
+        return sb.toString();
+    }
+
+    // ----------------------------
+    // Dumps
+    // ----------------------------
+
+    private Path writeDump(long startedAtMillis, List<Map.Entry<String, Integer>> stacks) {
+        try {
+            Files.createDirectories(dumpDir);
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, Integer> e : stacks) sb.append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+
+            Path file = dumpDir.resolve("stall-" + FILE_TS.format(Instant.ofEpochMilli(startedAtMillis)) + ".collapsed");
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(tmp, sb, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            pruneDumps();
+            return file;
+        } catch (IOException e) {
+            log.warn("Watchdog", "Failed to write stall dump", "dir", dumpDir, "err", e.getMessage());
+            return null;
+        }
+    }
+
+    private void pruneDumps() throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dumpDir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(".collapsed"))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        }
+        for (int i = 0; i < files.size() - MAX_DUMP_FILES; i++) Files.deleteIfExists(files.get(i));
+    }
+}
@@ -0,0 +1,138 @@
+package org.banbridge.tick;
+
+import cn.nukkit.utils.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cooperative executor for heavy main-thread work (broadcasts, mass kicks/messages).
+ *
+ * A {@link Job} does one small unit of work per {@link Job#step()} call (e.g. one player). runTick() is
+ * called once per tick and steps queued jobs in FIFO order until the per-tick nanosecond budget is used,
+ * so a command touching hundreds of players is spread over several ticks instead of stalling one.
+ * At least one step runs per tick, so progress is guaranteed even with a tiny budget.
+ *
+ * Each job's future completes with a {@link Report}: how many ticks it spanned and the most main-thread
+ * time it used in any single tick.
+ *
+ * Threading: main thread only (submit from main-thread code such as command handlers).
+ */
+public final class TickBudgetExecutor {
+
+    @FunctionalInterface
+    public interface Job {
+        /**
+         * Performs one unit of work.
+         *
+         * @return true if more work remains
+         */
+        boolean step();
+    }
+
+    public record Report(String name, int ticks, int steps, long maxTickNanos, long totalNanos) {
+        public double maxTickMillis() {
+            return maxTickNanos / 1_000_000.0;
+        }
+    }
+
+    private final Logger log;
+    private final long budgetNanos;
+
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private final List<Task> touched = new ArrayList<>();
+
+    public TickBudgetExecutor(Logger log, long budgetMicros) {
+        this.log = log;
+        this.budgetNanos = Math.max(100L, budgetMicros) * 1_000L;
+    }
+
+    public CompletableFuture<Report> submit(String name, Job job) {
+        Task t = new Task(name, job);
+        tasks.addLast(t);
+        return t.future;
+    }
+
+    public int pendingJobs() {
+        return tasks.size();
+    }
+
+    /**
+     * Main thread, once per tick.
+     */
+    public void runTick() {
+        if (tasks.isEmpty()) return;
+
+        long deadline = System.nanoTime() + budgetNanos;
+
+        while (!tasks.isEmpty()) {
+            Task t = tasks.peekFirst();
+            if (!t.touchedThisTick) {
+                t.touchedThisTick = true;
+                t.ticks++;
+                touched.add(t);
+            }
+
+            long t0 = System.nanoTime();
+            boolean more;
+            Throwable failure = null;
+            try {
+                more = t.job.step();
+            } catch (Throwable e) {
+                more = false;
+                failure = e;
+            }
+            long t1 = System.nanoTime();
+
+            t.steps++;
+            t.tickNanos += (t1 - t0);
+
+            if (!more) {
+                tasks.pollFirst();
+                t.endTick();
+                if (failure != null) {
+                    log.warning("Tick job '" + t.name + "' failed: "
+                            + failure.getClass().getSimpleName() + ": " + failure.getMessage());
+                }
+                t.future.complete(t.report());
+            }
+
+            if (t1 - deadline >= 0) break;
+        }
+
+        for (Task t : touched) t.endTick();
+        touched.clear();
+    }
+
+    private static final class Task {
+        final String name;
+        final Job job;
+        final CompletableFuture<Report> future = new CompletableFuture<>();
+
+        int ticks;
+        int steps;
+        long tickNanos;
+        long maxTickNanos;
+        long totalNanos;
+        boolean touchedThisTick;
+
+        Task(String name, Job job) {
+            this.name = name;
+            this.job = job;
+        }
+
+        void endTick() {
+            if (!touchedThisTick) return;
+            touchedThisTick = false;
+            maxTickNanos = Math.max(maxTickNanos, tickNanos);
+            totalNanos += tickNanos;
+            tickNanos = 0;
+        }
+
+        Report report() {
+            return new Report(name, ticks, steps, maxTickNanos, totalNanos);
+        }
+    }
+}
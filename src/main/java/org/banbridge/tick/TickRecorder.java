@@ -0,0 +1,122 @@
+package org.banbridge.tick;
+
+import java.util.Arrays;
+
+/**
+ * Records server tick durations from a repeating 1-tick task.
+ *
+ * The duration of a tick is the time between two consecutive runs of that task: at 20 TPS it is
+ * ~50 ms, and a tick whose work overruns the 50 ms budget shows up as a longer interval, so short stalls
+ * are visible even when the averaged TPS still looks fine.
+ *
+ * onTick() (main thread only) is one nanoTime() call plus a store into an int ring of microseconds and
+ * does not allocate. drainWindow() runs on the metrics thread, copies the samples recorded since the
+ * previous call and computes percentiles there. The ring is sized to hold a full reporting window; if a
+ * window is longer than the ring only the newest samples are used for the percentiles, while the slow
+ * tick count stays exact.
+ */
+public final class TickRecorder {
+
+    /**
+     * Sleep granularity of the tick loop makes healthy ticks land on 50 ms ± ~1 ms.
+     */
+    private static final long SLOW_TICK_MICROS = 50_000L + 2_000L;
+
+    private final int[] ring;
+    private final int mask;
+
+    private long lastTickNanos = -1L;
+    private volatile long written;
+    private volatile long slowTicks;
+
+    private long readUpTo;
+    private long slowTicksRead;
+
+    /**
+     * @param windowSeconds reporting interval the ring must cover (at 20 TPS)
+     */
+    public TickRecorder(int windowSeconds) {
+        int needed = Math.max(64, windowSeconds * 20 * 2);
+        int cap = Integer.highestOneBit(needed - 1) << 1;
+        this.ring = new int[cap];
+        this.mask = cap - 1;
+    }
+
+    /**
+     * Ticks recorded since start (any thread).
+     */
+    public long totalTicks() {
+        return written;
+    }
+
+    /**
+     * Ticks over 50 ms since start (any thread).
+     */
+    public long totalSlowTicks() {
+        return slowTicks;
+    }
+
+    /**
+     * Main thread only.
+     */
+    public void onTick() {
+        long now = System.nanoTime();
+        long last = lastTickNanos;
+        lastTickNanos = now;
+        if (last < 0) return;
+
+        long micros = (now - last) / 1_000L;
+        long w = written;
+        ring[(int) (w & mask)] = (int) Math.min(Integer.MAX_VALUE, micros);
+        if (micros > SLOW_TICK_MICROS) slowTicks = slowTicks + 1;
+        written = w + 1;
+    }
+
+    /**
+     * Summary of the ticks recorded since the previous call; null if none were recorded.
+     * Single reader (the metrics task).
+     */
+    public synchronized Window drainWindow() {
+        long end = written;
+        long slow = slowTicks;
+        long start = Math.max(readUpTo, end - ring.length + 1);
+        long ticks = end - readUpTo;
+        long slowInWindow = slow - slowTicksRead;
+        readUpTo = end;
+        slowTicksRead = slow;
+
+        int n = (int) (end - start);
+        if (n <= 0) return null;
+
+        int[] copy = new int[n];
+        for (int i = 0; i < n; i++) copy[i] = ring[(int) ((start + i) & mask)];
+        Arrays.sort(copy);
+
+        return new Window(
+                ticks,
+                millis(copy, 0.50),
+                millis(copy, 0.95),
+                millis(copy, 0.99),
+                copy[n - 1] / 1_000.0,
+                slowInWindow
+        );
+    }
+
+    private static double millis(int[] sorted, double q) {
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))] / 1_000.0;
+    }
+
+    /**
+     * Tick durations in ms over one reporting window.
+     */
+    public record Window(
+            long ticks,
+            double p50Ms,
+            double p95Ms,
+            double p99Ms,
+            double maxMs,
+            long slowTicks
+    ) {
+    }
+}
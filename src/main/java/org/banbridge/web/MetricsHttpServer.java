@@ -0,0 +1,98 @@
+package org.banbridge.web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.banbridge.log.BridgeLog;
+import org.banbridge.log.LogLevel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Local scrape endpoint (web.enabled) serving BanBridge internals for Prometheus, so each server can be
+ * scraped directly instead of only through the backend.
+ *
+ * Runs on the JDK's built-in HTTP server with one daemon thread ("BanBridge-Web"); scrapes never touch the
+ * main thread. The renderer only reads counters and snapshots that are already aggregated elsewhere
+ * (LongAdders, lock-free histograms, the last metrics push window), so a scrape costs the hot paths nothing.
+ *
+ * GET/HEAD on the configured path only; OpenMetrics text when the Accept header asks for it, else the
+ * Prometheus 0.0.4 text format.
+ */
+public final class MetricsHttpServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Consumer<OpenMetricsWriter> renderer;
+    private final BridgeLog log;
+
+    public MetricsHttpServer(String bind, int port, String path, Consumer<OpenMetricsWriter> renderer, BridgeLog log)
+            throws IOException {
+        this.renderer = renderer;
+        this.log = log;
+        this.server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "BanBridge-Web");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext(path, this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String method = ex.getRequestMethod();
+            boolean head = "HEAD".equals(method);
+            if (!head && !"GET".equals(method)) {
+                ex.getResponseHeaders().set("Allow", "GET, HEAD");
+                ex.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!ex.getRequestURI().getPath().equals(ex.getHttpContext().getPath())) {
+                ex.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String accept = ex.getRequestHeaders().getFirst("Accept");
+            OpenMetricsWriter w = new OpenMetricsWriter(accept != null && accept.contains("application/openmetrics-text"));
+            byte[] body;
+            try {
+                renderer.accept(w);
+                body = w.finish().getBytes(StandardCharsets.UTF_8);
+            } catch (Throwable t) {
+                log.logKeyed(LogLevel.WARN, "web:render", "Web", "Metrics render failed", "err", t.toString());
+                ex.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            ex.getResponseHeaders().set("Content-Type", w.contentType());
+            if (head) {
+                ex.sendResponseHeaders(200, -1);
+                return;
+            }
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+}
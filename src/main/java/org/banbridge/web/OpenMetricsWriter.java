@@ -0,0 +1,91 @@
+package org.banbridge.web;
+
+import java.util.Locale;
+
+/**
+ * Builds a scrape response in the OpenMetrics 1.0 text format, or the Prometheus 0.0.4 text format for
+ * scrapers that do not ask for OpenMetrics. The two differ only in the TYPE name of counters and the
+ * trailing "# EOF".
+ *
+ * Usage: one {@link #family} line per metric, followed by its samples. Labels are name/value pairs.
+ */
+public final class OpenMetricsWriter {
+
+    public static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+    public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public enum Type {
+        GAUGE, COUNTER
+    }
+
+    private final StringBuilder sb = new StringBuilder(8192);
+    private final boolean openMetrics;
+
+    public OpenMetricsWriter(boolean openMetrics) {
+        this.openMetrics = openMetrics;
+    }
+
+    public String contentType() {
+        return openMetrics ? OPENMETRICS_CONTENT_TYPE : PROMETHEUS_CONTENT_TYPE;
+    }
+
+    /**
+     * Starts a metric family. Counter samples must then be written as name + "_total".
+     */
+    public OpenMetricsWriter family(String name, Type type, String help) {
+        String typeName = (type == Type.COUNTER && !openMetrics) ? name + "_total" : name;
+        sb.append("# TYPE ").append(typeName).append(' ').append(type.name().toLowerCase(Locale.ROOT)).append('\n');
+        sb.append("# HELP ").append(typeName).append(' ').append(escapeHelp(help, openMetrics)).append('\n');
+        return this;
+    }
+
+    public OpenMetricsWriter sample(String name, double value, String... labels) {
+        sb.append(name);
+        if (labels.length > 0) {
+            sb.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) sb.append(',');
+                sb.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Family with a single unlabeled sample; skipped if value is null.
+     */
+    public OpenMetricsWriter gauge(String name, String help, Number value) {
+        if (value == null) return this;
+        family(name, Type.GAUGE, help);
+        return sample(name, value.doubleValue());
+    }
+
+    public OpenMetricsWriter counter(String name, String help, long value) {
+        family(name, Type.COUNTER, help);
+        return sample(name + "_total", value);
+    }
+
+    public String finish() {
+        if (openMetrics) sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    private static String format(double v) {
+        if (Double.isNaN(v)) return "NaN";
+        if (Double.isInfinite(v)) return (v > 0) ? "+Inf" : "-Inf";
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+        return Double.toString(v);
+    }
+
+    private static String escapeLabel(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String s, boolean openMetrics) {
+        String out = s.replace("\\", "\\\\").replace("\n", "\\n");
+        return openMetrics ? out.replace("\"", "\\\"") : out;
+    }
+}